@@ -1,5 +1,6 @@
 package com.ispark.location_service;
 
+import com.ispark.location_service.snapshot.SnapshotCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,6 +8,9 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class LocationServiceApplication {
 
 	public static void main(String[] args) {
+		if (SnapshotCommand.isRequested(args)) {
+			System.exit(SnapshotCommand.run(LocationServiceApplication.class, args));
+		}
 		SpringApplication.run(LocationServiceApplication.class, args);
 	}
 
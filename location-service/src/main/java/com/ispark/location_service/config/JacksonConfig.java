@@ -0,0 +1,16 @@
+package com.ispark.location_service.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.ispark.location_service.dto.ProjectionFilter;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer projectionFilter() {
+        return builder -> builder.filters(new SimpleFilterProvider().addFilter(ProjectionFilter.ID, new ProjectionFilter()));
+    }
+}
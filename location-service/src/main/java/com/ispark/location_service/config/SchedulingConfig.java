@@ -0,0 +1,12 @@
+package com.ispark.location_service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Turned off for command line runs, which must not start compaction or reconciliation
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "location.scheduling", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
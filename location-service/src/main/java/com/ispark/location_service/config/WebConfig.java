@@ -0,0 +1,61 @@
+package com.ispark.location_service.config;
+
+import com.ispark.location_service.limiter.AdaptiveConcurrencyLimiter;
+import com.ispark.location_service.limiter.ConcurrencyLimitInterceptor;
+import com.ispark.location_service.limiter.LimiterProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    static final String[] LOCATION_API_PATHS = {
+            "/api/cities/**",
+            "/api/districts/**",
+            "/api/streets/**",
+            "/api/locations/**"
+    };
+
+    @Autowired
+    private LimiterProperties limiterProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!limiterProperties.isEnabled()) {
+            return;
+        }
+        AdaptiveConcurrencyLimiter readLimiter = registerLimiter("read", limiterProperties.getRead());
+        AdaptiveConcurrencyLimiter writeLimiter = registerLimiter("write", limiterProperties.getWrite());
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(readLimiter, writeLimiter, limiterProperties.getRetryAfterSeconds()))
+                .addPathPatterns(LOCATION_API_PATHS);
+    }
+
+    private AdaptiveConcurrencyLimiter registerLimiter(String name, LimiterProperties.Limit limit) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(name, limit, limiterProperties);
+        Gauge.builder("location.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("location.limiter.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently holding a permit")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("location.limiter.rtt.long", limiter, AdaptiveConcurrencyLimiter::getLongRttMillis)
+                .description("Long term average latency in milliseconds")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("location.limiter.rejected", limiter, AdaptiveConcurrencyLimiter::getRejectedCount)
+                .description("Requests rejected because the limit was reached")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        return limiter;
+    }
+}
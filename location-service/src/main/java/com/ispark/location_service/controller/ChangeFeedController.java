@@ -0,0 +1,40 @@
+package com.ispark.location_service.controller;
+
+import com.ispark.location_service.dto.ChangeFeedDTO;
+import com.ispark.location_service.service.ChangeFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/locations")
+@Tag(name = "Location Changes", description = "Incremental change feed for mirroring location data")
+public class ChangeFeedController {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Operation(summary = "Get changes since a version",
+            description = "Retrieve city, district and street changes, including deletes, with a version greater than the given one. "
+                    + "Continue with nextSince while hasMore is true. When resyncRequired is true the requested version has been "
+                    + "compacted away and the consumer has to reload everything and continue from latestVersion. "
+                    + "When location data is sharded, page with cursor instead of since: every change carries its shard, "
+                    + "versions are only ordered within a shard. A city is owned by one shard at a time: a city moved "
+                    + "between shards shows up as upserts of the whole city on its new shard, and its copy on the old shard "
+                    + "is removed without a delete. Key entries by their codes and only apply a delete when it comes from "
+                    + "the shard that last sent an upsert for the entry.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved changes"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeedDTO> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(changeFeedService.findChanges(cursor, since, limit));
+    }
+}
@@ -23,14 +23,17 @@ public class CityController {
     @Autowired
     private LocationService locationService;
 
-    @Operation(summary = "Get all cities", description = "Retrieve a list of all cities")
+    @Operation(summary = "Get all cities", description = "Retrieve a list of all cities. "
+            + "Use fields=cityId,cityName,cityCode to select columns and include=districts to add district summaries")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of cities"),
-            @ApiResponse(responseCode = "204", description = "No cities found")
+            @ApiResponse(responseCode = "204", description = "No cities found"),
+            @ApiResponse(responseCode = "400", description = "Unknown field or include")
     })
     @GetMapping
-    public ResponseEntity<List<CityDTO>> getAllCities() {
-        List<CityDTO> cities = locationService.findAllCities();
+    public ResponseEntity<List<CityDTO>> getAllCities(@RequestParam(required = false) String fields,
+                                                      @RequestParam(required = false) String include) {
+        List<CityDTO> cities = locationService.findAllCities(fields, include);
         if (cities.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -2,6 +2,7 @@ package com.ispark.location_service.controller;
 
 import com.ispark.location_service.dto.DistrictDTO;
 import com.ispark.location_service.exception.ResourceNotFoundException;
+import com.ispark.location_service.service.GroupCommitService;
 import com.ispark.location_service.service.LocationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -23,15 +24,22 @@ public class DistrictController {
     @Autowired
     private LocationService locationService;
 
-    @Operation(summary = "Get districts by city code", description = "Retrieve a list of districts by city code")
+    @Autowired
+    private GroupCommitService groupCommitService;
+
+    @Operation(summary = "Get districts by city code", description = "Retrieve district summaries by city code. "
+            + "Use fields to select columns, include=streetCount to add street counts and include=streets to embed the streets")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of districts"),
             @ApiResponse(responseCode = "404", description = "City not found"),
-            @ApiResponse(responseCode = "204", description = "No districts found")
+            @ApiResponse(responseCode = "204", description = "No districts found"),
+            @ApiResponse(responseCode = "400", description = "Unknown field or include")
     })
     @GetMapping("/city/{cityCode}")
-    public ResponseEntity<List<DistrictDTO>> getDistrictsByCity(@PathVariable String cityCode) {
-        List<DistrictDTO> districts = locationService.findDistrictsByCityCode(cityCode);
+    public ResponseEntity<List<DistrictDTO>> getDistrictsByCity(@PathVariable String cityCode,
+                                                                @RequestParam(required = false) String fields,
+                                                                @RequestParam(required = false) String include) {
+        List<DistrictDTO> districts = locationService.findDistrictsByCityCode(cityCode, fields, include);
         if (districts.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -58,7 +66,7 @@ public class DistrictController {
     })
     @PostMapping
     public ResponseEntity<DistrictDTO> createDistrict(@RequestBody @Valid DistrictDTO districtDTO) {
-        DistrictDTO createdDistrict = locationService.createDistrict(districtDTO);
+        DistrictDTO createdDistrict = groupCommitService.createDistrict(districtDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdDistrict);
     }
 
@@ -86,14 +94,17 @@ public class DistrictController {
         return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Get all districts", description = "Retrieve a list of all districts")
+    @Operation(summary = "Get all districts", description = "Retrieve district summaries of all cities. "
+            + "Use fields to select columns, include=streetCount to add street counts and include=streets to embed the streets")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of districts"),
-            @ApiResponse(responseCode = "204", description = "No districts found")
+            @ApiResponse(responseCode = "204", description = "No districts found"),
+            @ApiResponse(responseCode = "400", description = "Unknown field or include")
     })
     @GetMapping("/all")
-    public ResponseEntity<List<DistrictDTO>> getAllDistricts() {
-        List<DistrictDTO> districts = locationService.findAllDistricts();
+    public ResponseEntity<List<DistrictDTO>> getAllDistricts(@RequestParam(required = false) String fields,
+                                                             @RequestParam(required = false) String include) {
+        List<DistrictDTO> districts = locationService.findAllDistricts(fields, include);
         if (districts.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
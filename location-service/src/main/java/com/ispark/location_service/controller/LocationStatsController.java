@@ -0,0 +1,59 @@
+package com.ispark.location_service.controller;
+
+import com.ispark.location_service.dto.CityStatsDTO;
+import com.ispark.location_service.dto.DistrictStatsDTO;
+import com.ispark.location_service.exception.ResourceNotFoundException;
+import com.ispark.location_service.service.LocationStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/locations/stats")
+@Tag(name = "Location Statistics", description = "District and street counts per city and district")
+public class LocationStatsController {
+
+    @Autowired
+    private LocationStatsService locationStatsService;
+
+    @Operation(summary = "Get counts for all cities", description = "Retrieve the district and street count of every city")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved counts")
+    })
+    @GetMapping("/cities")
+    public ResponseEntity<List<CityStatsDTO>> getAllCityStats() {
+        return ResponseEntity.ok(locationStatsService.findAllCityStats());
+    }
+
+    @Operation(summary = "Get counts for a city", description = "Retrieve the district and street count of a city")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved counts"),
+            @ApiResponse(responseCode = "404", description = "City not found")
+    })
+    @GetMapping("/cities/{cityCode}")
+    public ResponseEntity<CityStatsDTO> getCityStats(@PathVariable String cityCode) {
+        CityStatsDTO stats = locationStatsService.findCityStats(cityCode)
+                .orElseThrow(() -> new ResourceNotFoundException("City not found with code: " + cityCode));
+        return ResponseEntity.ok(stats);
+    }
+
+    @Operation(summary = "Get street counts for the districts of a city", description = "Retrieve the street count of every district in a city")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved counts"),
+            @ApiResponse(responseCode = "404", description = "City not found")
+    })
+    @GetMapping("/cities/{cityCode}/districts")
+    public ResponseEntity<List<DistrictStatsDTO>> getDistrictStats(@PathVariable String cityCode) {
+        List<DistrictStatsDTO> stats = locationStatsService.findDistrictStats(cityCode);
+        if (stats.isEmpty() && locationStatsService.findCityStats(cityCode).isEmpty()) {
+            throw new ResourceNotFoundException("City not found with code: " + cityCode);
+        }
+        return ResponseEntity.ok(stats);
+    }
+}
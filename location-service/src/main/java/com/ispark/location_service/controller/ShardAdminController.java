@@ -0,0 +1,70 @@
+package com.ispark.location_service.controller;
+
+import com.ispark.location_service.dto.CityPlacementDTO;
+import com.ispark.location_service.dto.ShardTopologyDTO;
+import com.ispark.location_service.service.ShardMigrationService;
+import com.ispark.location_service.sharding.ShardRouter;
+import com.ispark.location_service.sharding.ShardingProperties;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+@ConditionalOnProperty(prefix = "location.sharding", name = "enabled", havingValue = "true")
+@Tag(name = "Shard Administration", description = "Inspect and rebalance city placement across shards")
+public class ShardAdminController {
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private ShardMigrationService shardMigrationService;
+
+    @Operation(summary = "Get shard topology", description = "Retrieve the configured shards and the cities pinned to a shard")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved topology")
+    })
+    @GetMapping
+    public ResponseEntity<ShardTopologyDTO> getTopology() {
+        return ResponseEntity.ok(ShardTopologyDTO.builder()
+                .shards(shardRouter.getShardIds())
+                .directoryShard(shardRouter.getDirectoryShard())
+                .virtualNodes(shardingProperties.getVirtualNodes())
+                .placements(shardRouter.getPlacements())
+                .build());
+    }
+
+    @Operation(summary = "Get city placement", description = "Retrieve the shard that owns a city")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved placement")
+    })
+    @GetMapping("/cities/{cityCode}")
+    public ResponseEntity<CityPlacementDTO> getPlacement(@PathVariable String cityCode) {
+        return ResponseEntity.ok(shardMigrationService.findPlacement(cityCode));
+    }
+
+    @Operation(summary = "Move a city to another shard",
+            description = "Copy a city with its districts and streets to the target shard and pin it there. "
+                    + "Writes to the city are rejected with 503 on every instance while it is moved; other instances "
+                    + "pick up the new placement within location.sharding.placement-refresh-ms. An interrupted move "
+                    + "is finished by repeating the request with the same target shard, or by the next start of any instance.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "City moved"),
+            @ApiResponse(responseCode = "400", description = "Unknown shard or city already on that shard"),
+            @ApiResponse(responseCode = "404", description = "City not found"),
+            @ApiResponse(responseCode = "409", description = "City is already being moved, is being moved by another request or conflicts with the target shard")
+    })
+    @PostMapping("/cities/{cityCode}/move")
+    public ResponseEntity<CityPlacementDTO> moveCity(@PathVariable String cityCode, @RequestParam String targetShard) {
+        return ResponseEntity.ok(shardMigrationService.moveCity(cityCode, targetShard));
+    }
+}
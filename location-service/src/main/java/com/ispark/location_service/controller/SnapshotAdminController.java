@@ -0,0 +1,71 @@
+package com.ispark.location_service.controller;
+
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import com.ispark.location_service.dto.SnapshotStatusDTO;
+import com.ispark.location_service.exception.InvalidRequestException;
+import com.ispark.location_service.snapshot.SnapshotReadModel;
+import com.ispark.location_service.snapshot.SnapshotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/admin/snapshot")
+@Tag(name = "Snapshot Administration", description = "Export, validate and load the binary location snapshot")
+public class SnapshotAdminController {
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private SnapshotReadModel snapshotReadModel;
+
+    @Operation(summary = "Get snapshot status", description = "Retrieve the snapshot loaded by this instance and how far it has caught up")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved status")
+    })
+    @GetMapping
+    public ResponseEntity<SnapshotStatusDTO> getStatus() {
+        return ResponseEntity.ok(snapshotReadModel.getStatus());
+    }
+
+    @Operation(summary = "Export a snapshot", description = "Write the current location data to the configured snapshot file")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot written"),
+            @ApiResponse(responseCode = "400", description = "No snapshot path configured")
+    })
+    @PostMapping("/export")
+    public ResponseEntity<SnapshotInfoDTO> export() {
+        return ResponseEntity.ok(snapshotService.export(snapshotService.getConfiguredPath()));
+    }
+
+    @Operation(summary = "Validate the snapshot", description = "Check the checksum and structure of the configured snapshot file")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Validation result"),
+            @ApiResponse(responseCode = "400", description = "No snapshot path configured")
+    })
+    @GetMapping("/validate")
+    public ResponseEntity<SnapshotInfoDTO> validate() {
+        return ResponseEntity.ok(snapshotService.validate(snapshotService.getConfiguredPath()));
+    }
+
+    @Operation(summary = "Load the snapshot", description = "Map the configured snapshot file and catch up on changes made since it was written")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot loaded"),
+            @ApiResponse(responseCode = "400", description = "No snapshot path configured or the file is invalid")
+    })
+    @PostMapping("/load")
+    public ResponseEntity<SnapshotInfoDTO> load() {
+        try {
+            return ResponseEntity.ok(snapshotReadModel.load(snapshotService.getConfiguredPath()));
+        } catch (IOException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+}
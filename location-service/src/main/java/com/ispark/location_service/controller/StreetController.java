@@ -2,6 +2,7 @@ package com.ispark.location_service.controller;
 
 import com.ispark.location_service.dto.StreetDTO;
 import com.ispark.location_service.exception.ResourceNotFoundException;
+import com.ispark.location_service.service.GroupCommitService;
 import com.ispark.location_service.service.LocationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -23,15 +24,20 @@ public class StreetController {
     @Autowired
     private LocationService locationService;
 
-    @Operation(summary = "Get streets by district code and city code", description = "Retrieve a list of streets by district code and city code")
+    @Autowired
+    private GroupCommitService groupCommitService;
+
+    @Operation(summary = "Get streets by district code and city code", description = "Retrieve a list of streets by district code and city code. Use fields to select columns")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of streets"),
             @ApiResponse(responseCode = "404", description = "District not found"),
-            @ApiResponse(responseCode = "204", description = "No streets found")
+            @ApiResponse(responseCode = "204", description = "No streets found"),
+            @ApiResponse(responseCode = "400", description = "Unknown field")
     })
     @GetMapping("/district/{districtCode}/city/{cityCode}")
-    public ResponseEntity<List<StreetDTO>> getStreetsByDistrict(@PathVariable String districtCode, @PathVariable String cityCode) {
-        List<StreetDTO> streets = locationService.findStreetsByDistrictCode(districtCode, cityCode);
+    public ResponseEntity<List<StreetDTO>> getStreetsByDistrict(@PathVariable String districtCode, @PathVariable String cityCode,
+                                                                @RequestParam(required = false) String fields) {
+        List<StreetDTO> streets = locationService.findStreetsByDistrictCode(districtCode, cityCode, fields);
         if (streets.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -58,7 +64,7 @@ public class StreetController {
     })
     @PostMapping
     public ResponseEntity<StreetDTO> createStreet(@RequestBody @Valid StreetDTO streetDTO) {
-        StreetDTO createdStreet = locationService.createStreet(streetDTO);
+        StreetDTO createdStreet = groupCommitService.createStreet(streetDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdStreet);
     }
 
@@ -86,14 +92,15 @@ public class StreetController {
         return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Get all streets", description = "Retrieve a list of all streets")
+    @Operation(summary = "Get all streets", description = "Retrieve a list of all streets. Use fields to select columns")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of streets"),
-            @ApiResponse(responseCode = "204", description = "No streets found")
+            @ApiResponse(responseCode = "204", description = "No streets found"),
+            @ApiResponse(responseCode = "400", description = "Unknown field")
     })
     @GetMapping("/all")
-    public ResponseEntity<List<StreetDTO>> getAllStreets() {
-        List<StreetDTO> streets = locationService.findAllStreets();
+    public ResponseEntity<List<StreetDTO>> getAllStreets(@RequestParam(required = false) String fields) {
+        List<StreetDTO> streets = locationService.findAllStreets(fields);
         if (streets.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -0,0 +1,26 @@
+package com.ispark.location_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedDTO {
+
+    private List<LocationChangeDTO> changes;
+    // Unsharded feeds are paged by version, sharded feeds by cursor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nextSince;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long latestVersion;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String latestCursor;
+    private boolean hasMore;
+    private boolean resyncRequired;
+}
@@ -1,6 +1,8 @@
 package com.ispark.location_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.ispark.location_service.entity.City;
+import com.ispark.location_service.sharding.CityScoped;
 import lombok.*;
 
 import java.util.List;
@@ -10,7 +12,8 @@ import java.util.stream.Collectors;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class CityDTO {
+@JsonFilter(ProjectionFilter.ID)
+public class CityDTO implements CityScoped {
 
     private Long cityId;
     private String cityName;
@@ -34,4 +37,7 @@ public class CityDTO {
                 .cityCode(cityCode)
                 .build();
     }
+
+    public static class Projected extends CityDTO implements Projection {
+    }
 }
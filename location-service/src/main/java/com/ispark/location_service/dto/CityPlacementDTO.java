@@ -0,0 +1,14 @@
+package com.ispark.location_service.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityPlacementDTO {
+
+    private String cityCode;
+    private String shardId;
+    private boolean pinned;
+}
@@ -0,0 +1,15 @@
+package com.ispark.location_service.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityStatsDTO {
+
+    private String cityCode;
+    private String cityName;
+    private long districtCount;
+    private long streetCount;
+}
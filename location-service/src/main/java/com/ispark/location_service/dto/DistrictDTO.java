@@ -1,7 +1,10 @@
 package com.ispark.location_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.ispark.location_service.entity.District;
 import com.ispark.location_service.entity.City;
+import com.ispark.location_service.sharding.CityScoped;
 import lombok.*;
 
 import java.util.List;
@@ -11,12 +14,15 @@ import java.util.stream.Collectors;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class DistrictDTO {
+@JsonFilter(ProjectionFilter.ID)
+public class DistrictDTO implements CityScoped {
 
     private Long districtId;
     private String districtCode;
     private String districtName;
     private String cityCode;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long streetCount;
     private List<StreetDTO> streets;
 
     public static DistrictDTO fromEntity(District district) {
@@ -38,4 +44,7 @@ public class DistrictDTO {
                 .city(city)
                 .build();
     }
+
+    public static class Projected extends DistrictDTO implements Projection {
+    }
 }
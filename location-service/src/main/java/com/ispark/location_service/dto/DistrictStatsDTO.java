@@ -0,0 +1,14 @@
+package com.ispark.location_service.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistrictStatsDTO {
+
+    private String districtCode;
+    private String districtName;
+    private long streetCount;
+}
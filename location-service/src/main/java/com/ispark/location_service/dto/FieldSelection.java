@@ -0,0 +1,62 @@
+package com.ispark.location_service.dto;
+
+import com.ispark.location_service.exception.InvalidRequestException;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parsed {@code ?fields=} and {@code ?include=} parameters of a list endpoint. Fields select scalar
+ * properties, includes expand related data that is not part of the default representation.
+ */
+@Getter
+public class FieldSelection {
+
+    private final Set<String> fields;
+    private final Set<String> include;
+    private final boolean explicit;
+
+    private FieldSelection(Set<String> fields, Set<String> include, boolean explicit) {
+        this.fields = Collections.unmodifiableSet(fields);
+        this.include = Collections.unmodifiableSet(include);
+        this.explicit = explicit;
+    }
+
+    public static FieldSelection parse(String fields, String include, Collection<String> allowedFields, Collection<String> allowedIncludes) {
+        Set<String> selectedFields = split(fields, allowedFields, "field");
+        Set<String> selectedIncludes = split(include, allowedIncludes, "include");
+        boolean explicit = !selectedFields.isEmpty() || !selectedIncludes.isEmpty();
+        return new FieldSelection(selectedFields.isEmpty() ? new LinkedHashSet<>(allowedFields) : selectedFields, selectedIncludes, explicit);
+    }
+
+    private static Set<String> split(String value, Collection<String> allowed, String kind) {
+        Set<String> result = new LinkedHashSet<>();
+        if (value == null || value.isBlank()) {
+            return result;
+        }
+        Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> {
+                    if (!allowed.contains(name)) {
+                        throw new InvalidRequestException("Unknown " + kind + ": " + name + ", allowed values are " + allowed);
+                    }
+                    result.add(name);
+                });
+        return result;
+    }
+
+    public boolean includes(String name) {
+        return include.contains(name);
+    }
+
+    // Equal for selections of the same fields and includes in the same order
+    public List<List<String>> key() {
+        return List.of(List.copyOf(fields), List.copyOf(include));
+    }
+}
@@ -0,0 +1,40 @@
+package com.ispark.location_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.ispark.location_service.entity.LocationChange;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationChangeDTO {
+
+    private Long version;
+    private LocationChange.EntityType entityType;
+    private LocationChange.ChangeType changeType;
+    private Long entityId;
+    private String cityCode;
+    private String districtCode;
+    private String streetCode;
+    private String name;
+    private LocalDateTime changedAt;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String shard;
+
+    public static LocationChangeDTO fromEntity(LocationChange change) {
+        return LocationChangeDTO.builder()
+                .version(change.getVersion())
+                .entityType(change.getEntityType())
+                .changeType(change.getChangeType())
+                .entityId(change.getEntityId())
+                .cityCode(change.getCityCode())
+                .districtCode(change.getDistrictCode())
+                .streetCode(change.getStreetCode())
+                .name(change.getName())
+                .changedAt(change.getChangedAt())
+                .build();
+    }
+}
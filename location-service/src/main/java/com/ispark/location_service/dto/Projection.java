@@ -0,0 +1,8 @@
+package com.ispark.location_service.dto;
+
+/**
+ * A DTO filled from a column projection. Properties outside the selected fields are null and are
+ * left out of the JSON by {@link ProjectionFilter}.
+ */
+public interface Projection {
+}
@@ -0,0 +1,25 @@
+package com.ispark.location_service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+
+/**
+ * Leaves null properties of projections out of the JSON, so a sparse fieldset only shows the
+ * selected fields. Every other DTO is written in full, nulls included. The filter is decided per
+ * object because the list endpoints are written with their declared element type.
+ */
+public class ProjectionFilter extends SimpleBeanPropertyFilter {
+
+    public static final String ID = "projection";
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider, PropertyWriter writer) throws Exception {
+        if (pojo instanceof Projection && writer instanceof BeanPropertyWriter property && property.get(pojo) == null) {
+            return;
+        }
+        writer.serializeAsField(pojo, generator, provider);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ispark.location_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardTopologyDTO {
+
+    private List<String> shards;
+    private String directoryShard;
+    private int virtualNodes;
+    private Map<String, String> placements;
+}
@@ -0,0 +1,26 @@
+package com.ispark.location_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SnapshotInfoDTO {
+
+    private String path;
+    private boolean valid;
+    private String error;
+    private Integer formatVersion;
+    private Instant createdAt;
+    private String cursor;
+    private Integer cities;
+    private Integer districts;
+    private Integer streets;
+    private Long sizeBytes;
+    private String checksum;
+}
@@ -0,0 +1,19 @@
+package com.ispark.location_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SnapshotStatusDTO {
+
+    private boolean loaded;
+    private boolean serving;
+    private boolean stale;
+    private String cursor;
+    private Integer overlayEntries;
+    private SnapshotInfoDTO snapshot;
+}
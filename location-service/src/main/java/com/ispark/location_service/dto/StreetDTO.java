@@ -1,14 +1,17 @@
 package com.ispark.location_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.ispark.location_service.entity.Street;
 import com.ispark.location_service.entity.District;
+import com.ispark.location_service.sharding.CityScoped;
 import lombok.*;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class StreetDTO {
+@JsonFilter(ProjectionFilter.ID)
+public class StreetDTO implements CityScoped {
 
     private Long streetId;
     private String streetName;
@@ -33,4 +36,7 @@ public class StreetDTO {
                 .district(district)
                 .build();
     }
+
+    public static class Projected extends StreetDTO implements Projection {
+    }
 }
@@ -28,6 +28,9 @@ public class City {
     @Column(nullable = false, unique = true)
     private String cityCode;
 
+    // Set on both copies while the city is moved between shards, writes are rejected until it is cleared
+    private Boolean moving;
+
     @OneToMany(mappedBy = "city", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<District> districts = new ArrayList<>();
 
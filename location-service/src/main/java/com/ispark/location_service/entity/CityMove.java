@@ -0,0 +1,59 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A city move in progress, kept in the placement directory until the move has finished. Its
+ * presence fences the city on every instance.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "city_moves")
+public class CityMove {
+
+    @Id
+    private String cityCode;
+
+    @Column(nullable = false)
+    private String sourceShard;
+
+    @Column(nullable = false)
+    private String targetShard;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private State state;
+
+    // Bumped by every step, so a mover that lost the move to another one fails at its next step
+    @Version
+    private Long attempt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        startedAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum State {
+        // The target may hold a partial copy, the source still owns the city
+        COPYING,
+        // The target holds a complete copy, the placement may not point to it yet
+        COPIED,
+        // The target owns the city, the source copy may not have been removed yet
+        PLACED
+    }
+}
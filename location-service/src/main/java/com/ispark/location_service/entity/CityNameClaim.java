@@ -0,0 +1,29 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A city name held in the placement directory while a transaction on some shard creates a city with
+ * it or renames a city to it. Only one shard can hold a name at a time.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "city_name_claims")
+public class CityNameClaim {
+
+    @Id
+    private String cityName;
+
+    // Identifies the holder, so a release never removes a claim that has been taken over since
+    @Column(nullable = false, length = 36)
+    private String token;
+
+    @Column(nullable = false)
+    private LocalDateTime claimedAt;
+}
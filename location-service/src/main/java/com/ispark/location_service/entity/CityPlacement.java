@@ -0,0 +1,29 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "city_placements")
+public class CityPlacement {
+
+    @Id
+    private String cityCode;
+
+    @Column(nullable = false)
+    private String shardId;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
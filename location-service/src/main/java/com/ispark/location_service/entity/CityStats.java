@@ -0,0 +1,22 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "city_stats")
+public class CityStats {
+
+    @Id
+    private Long cityId;
+
+    @Column(nullable = false)
+    private long districtCount;
+
+    @Column(nullable = false)
+    private long streetCount;
+}
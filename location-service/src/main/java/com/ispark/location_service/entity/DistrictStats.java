@@ -0,0 +1,22 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "district_stats", indexes = @Index(columnList = "cityId"))
+public class DistrictStats {
+
+    @Id
+    private Long districtId;
+
+    @Column(nullable = false)
+    private Long cityId;
+
+    @Column(nullable = false)
+    private long streetCount;
+}
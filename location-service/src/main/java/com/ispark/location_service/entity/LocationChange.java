@@ -0,0 +1,57 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "location_changes", indexes = {
+        @Index(columnList = "version", unique = true),
+        @Index(columnList = "changedAt")
+})
+public class LocationChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Assigned in commit order when the recording transaction commits, null until then
+    private Long version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ChangeType changeType;
+
+    private Long entityId;
+
+    @Column(nullable = false)
+    private String cityCode;
+
+    private String districtCode;
+    private String streetCode;
+    private String name;
+
+    private LocalDateTime changedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        changedAt = LocalDateTime.now();
+    }
+
+    public enum EntityType {
+        CITY, DISTRICT, STREET
+    }
+
+    public enum ChangeType {
+        UPSERT, DELETE
+    }
+}
@@ -0,0 +1,29 @@
+package com.ispark.location_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Single row per database that hands out change feed versions and remembers how far the feed has
+ * been compacted.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "location_change_sequence")
+public class LocationChangeSequence {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long lastVersion;
+
+    // Every version up to and including this one may have been removed by compaction
+    @Column(nullable = false)
+    private long compactedVersion;
+}
@@ -0,0 +1,105 @@
+package com.ispark.location_service.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gradient based concurrency limiter. The limit grows while the latency of recent requests stays
+ * close to the long term average and shrinks as soon as requests start queueing up behind a slow
+ * database. Failed requests cause a multiplicative decrease (AIMD style backoff).
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double LONG_WINDOW_WEIGHT = 2.0 / (600 + 1);
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile double estimatedLimit;
+    private volatile double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, LimiterProperties.Limit limit, LimiterProperties properties) {
+        this.name = name;
+        this.minLimit = limit.getMinLimit();
+        this.maxLimit = limit.getMaxLimit();
+        this.estimatedLimit = limit.getInitialLimit();
+        this.smoothing = properties.getSmoothing();
+        this.rttTolerance = properties.getRttTolerance();
+        this.backoffRatio = properties.getBackoffRatio();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) estimatedLimit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtRelease, dropped);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtRelease, boolean dropped) {
+        double limit = estimatedLimit;
+
+        if (dropped) {
+            estimatedLimit = clamp(limit * backoffRatio);
+            return;
+        }
+
+        double longRtt = longRttNanos == 0 ? rttNanos : longRttNanos * (1 - LONG_WINDOW_WEIGHT) + rttNanos * LONG_WINDOW_WEIGHT;
+        // Let the long term average recover quickly once the overload is gone
+        if (longRtt / rttNanos > 2) {
+            longRtt *= 0.95;
+        }
+        longRttNanos = longRtt;
+
+        // Do not grow the limit while the application is not using it
+        if (inFlightAtRelease * 2 < limit) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * longRtt / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        estimatedLimit = clamp(limit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    private double clamp(double limit) {
+        return Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public double getLongRttMillis() {
+        return longRttNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ispark.location_service.limiter;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "location.limiter")
+public class LimiterProperties {
+
+    private boolean enabled = true;
+    private double smoothing = 0.2;
+    private double rttTolerance = 1.5;
+    private double backoffRatio = 0.9;
+    private long retryAfterSeconds = 1;
+
+    private Limit read = new Limit(50, 10, 400);
+    private Limit write = new Limit(20, 5, 100);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.entity.CityMove;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CityMoveRepository extends JpaRepository<CityMove, String> {
+}
@@ -0,0 +1,20 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.entity.CityNameClaim;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface CityNameClaimRepository extends JpaRepository<CityNameClaim, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CityNameClaim c where c.cityName = :cityName")
+    Optional<CityNameClaim> lockByCityName(@Param("cityName") String cityName);
+    @Modifying
+    @Query("delete from CityNameClaim c where c.cityName = :cityName and c.token = :token")
+    int release(@Param("cityName") String cityName, @Param("token") String token);
+}
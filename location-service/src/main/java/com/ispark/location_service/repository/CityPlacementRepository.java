@@ -0,0 +1,7 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.entity.CityPlacement;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CityPlacementRepository extends JpaRepository<CityPlacement, String> {
+}
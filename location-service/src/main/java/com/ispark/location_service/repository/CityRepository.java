@@ -1,12 +1,30 @@
 package com.ispark.location_service.repository;
 
 import com.ispark.location_service.entity.City;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CityRepository extends JpaRepository<City, Long> {
     Optional<City> findByCityCode(String cityCode);
     Optional<City> findByCityName(String cityName);
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from City c where c.cityCode = :cityCode")
+    Optional<City> lockSharedByCityCode(@Param("cityCode") String cityCode);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from City c where c.cityCode = :cityCode")
+    Optional<City> lockByCityCode(@Param("cityCode") String cityCode);
     void deleteByCityCode(String cityCode);
+    @Query("select c.cityId from City c")
+    List<Long> findAllCityIds();
+    @Query("select c.cityCode from City c order by c.cityId")
+    List<String> findCityCodes(Pageable pageable);
+    @Query("select c.cityId, c.cityCode, c.cityName from City c")
+    List<Object[]> findAllForSnapshot();
 }
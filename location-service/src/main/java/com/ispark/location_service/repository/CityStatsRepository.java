@@ -0,0 +1,38 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.dto.CityStatsDTO;
+import com.ispark.location_service.entity.CityStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CityStatsRepository extends JpaRepository<CityStats, Long> {
+
+    // Cities created before counters existed fall back to counting until the next reconciliation
+    String CITY_STATS_SELECT = "select new com.ispark.location_service.dto.CityStatsDTO(c.cityCode, c.cityName, "
+            + "coalesce(s.districtCount, (select count(d) from District d where d.city = c)), "
+            + "coalesce(s.streetCount, (select count(st) from Street st where st.district.city = c))) "
+            + "from City c left join CityStats s on s.cityId = c.cityId";
+
+    @Query(CITY_STATS_SELECT + " where c.cityCode = :cityCode")
+    Optional<CityStatsDTO> findStatsByCityCode(@Param("cityCode") String cityCode);
+
+    @Query(CITY_STATS_SELECT)
+    List<CityStatsDTO> findAllStats();
+
+    @Modifying
+    @Query("update CityStats s set s.districtCount = s.districtCount + :districts, s.streetCount = s.streetCount + :streets "
+            + "where s.cityId = :cityId")
+    int increment(@Param("cityId") Long cityId, @Param("districts") long districts, @Param("streets") long streets);
+
+    // Only applies when the counters still hold the values the reconciliation looked at
+    @Modifying
+    @Query("update CityStats s set s.districtCount = :districtCount, s.streetCount = :streetCount "
+            + "where s.cityId = :cityId and s.districtCount = :seenDistrictCount and s.streetCount = :seenStreetCount")
+    int repair(@Param("cityId") Long cityId, @Param("districtCount") long districtCount, @Param("streetCount") long streetCount,
+               @Param("seenDistrictCount") long seenDistrictCount, @Param("seenStreetCount") long seenStreetCount);
+}
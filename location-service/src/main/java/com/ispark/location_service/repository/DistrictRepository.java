@@ -2,6 +2,7 @@ package com.ispark.location_service.repository;
 
 import com.ispark.location_service.entity.District;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +12,8 @@ public interface DistrictRepository extends JpaRepository<District, Long> {
     Optional<District> findByDistrictNameAndCity_CityCode(String districtName, String cityCode);
     List<District> findByCity_CityCode(String cityCode);
     void deleteByDistrictCodeAndCity_CityCode(String districtCode, String cityCode);
+    @Query("select d.districtId, d.city.cityId from District d")
+    List<Object[]> findAllDistrictAndCityIds();
+    @Query("select d.districtId, d.city.cityCode, d.districtCode, d.districtName from District d")
+    List<Object[]> findAllForSnapshot();
 }
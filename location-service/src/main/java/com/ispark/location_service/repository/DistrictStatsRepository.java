@@ -0,0 +1,31 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.dto.DistrictStatsDTO;
+import com.ispark.location_service.entity.DistrictStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface DistrictStatsRepository extends JpaRepository<DistrictStats, Long> {
+
+    @Query("select new com.ispark.location_service.dto.DistrictStatsDTO(d.districtCode, d.districtName, "
+            + "coalesce(s.streetCount, (select count(st) from Street st where st.district = d))) "
+            + "from District d left join DistrictStats s on s.districtId = d.districtId "
+            + "where d.city.cityCode = :cityCode order by d.districtCode")
+    List<DistrictStatsDTO> findStatsByCityCode(@Param("cityCode") String cityCode);
+
+    @Modifying
+    @Query("update DistrictStats s set s.streetCount = s.streetCount + :streets where s.districtId = :districtId")
+    int increment(@Param("districtId") Long districtId, @Param("streets") long streets);
+
+    @Modifying
+    @Query("update DistrictStats s set s.streetCount = :streetCount where s.districtId = :districtId and s.streetCount = :seenStreetCount")
+    int repair(@Param("districtId") Long districtId, @Param("streetCount") long streetCount, @Param("seenStreetCount") long seenStreetCount);
+
+    @Modifying
+    @Query("delete from DistrictStats s where s.cityId = :cityId")
+    int deleteByCityId(@Param("cityId") Long cityId);
+}
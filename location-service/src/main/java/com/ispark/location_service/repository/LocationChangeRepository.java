@@ -0,0 +1,25 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.entity.LocationChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LocationChangeRepository extends JpaRepository<LocationChange, Long> {
+    List<LocationChange> findByVersionGreaterThanOrderByVersionAsc(Long version, Pageable pageable);
+
+    @Query("select max(c.version) from LocationChange c")
+    Long findMaxVersion();
+
+    @Query("select max(c.version) from LocationChange c where c.changedAt < :cutoff and c.version < :maxVersion")
+    Long findMaxVersionOlderThan(@Param("cutoff") LocalDateTime cutoff, @Param("maxVersion") Long maxVersion);
+
+    @Modifying
+    @Query("delete from LocationChange c where c.version <= :version")
+    int deleteThroughVersion(@Param("version") Long version);
+}
@@ -0,0 +1,25 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.entity.LocationChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface LocationChangeSequenceRepository extends JpaRepository<LocationChangeSequence, Integer> {
+
+    // Locks the sequence row until the calling transaction ends
+    @Modifying
+    @Query("update LocationChangeSequence s set s.lastVersion = s.lastVersion + :count where s.id = :id")
+    int allocate(@Param("id") Integer id, @Param("count") long count);
+
+    @Query("select s.lastVersion from LocationChangeSequence s where s.id = :id")
+    Long findLastVersion(@Param("id") Integer id);
+
+    @Query("select s.compactedVersion from LocationChangeSequence s where s.id = :id")
+    Long findCompactedVersion(@Param("id") Integer id);
+
+    @Modifying
+    @Query("update LocationChangeSequence s set s.compactedVersion = :version where s.id = :id and s.compactedVersion < :version")
+    int advanceCompactedVersion(@Param("id") Integer id, @Param("version") long version);
+}
@@ -0,0 +1,195 @@
+package com.ispark.location_service.repository;
+
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.FieldSelection;
+import com.ispark.location_service.dto.StreetDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Column projections for the list endpoints. Only the requested columns are selected, no entities
+ * are loaded, and related rows are fetched with one query per page of parents instead of per row.
+ * Rows of the excluded cities, copies of cities that another shard owns, are left out.
+ */
+@Repository
+public class LocationProjectionRepository {
+
+    public static final Map<String, String> CITY_COLUMNS = columns(
+            "cityId", "c.cityId",
+            "cityName", "c.cityName",
+            "cityCode", "c.cityCode");
+
+    public static final Map<String, String> DISTRICT_COLUMNS = columns(
+            "districtId", "d.districtId",
+            "districtCode", "d.districtCode",
+            "districtName", "d.districtName",
+            "cityCode", "c.cityCode");
+
+    public static final Map<String, String> STREET_COLUMNS = columns(
+            "streetId", "s.streetId",
+            "streetName", "s.streetName",
+            "streetCode", "s.streetCode",
+            "districtCode", "d.districtCode",
+            "cityCode", "c.cityCode");
+
+    private static final String STREET_COUNT = "(select count(cs) from Street cs where cs.district = d)";
+    private static final String PARENT_KEY = "parentKey";
+    private static final String ROW_KEY = "rowKey";
+    private static final int IN_CLAUSE_BATCH = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<CityDTO> findCities(FieldSelection selection, Collection<String> excludedCityCodes) {
+        Map<String, String> select = select(CITY_COLUMNS, selection.getFields());
+        boolean withDistricts = selection.includes("districts");
+        if (withDistricts) {
+            select.put(ROW_KEY, "c.cityId");
+        }
+        Map<String, Object> params = new HashMap<>();
+        String where = excludeCities(null, excludedCityCodes, params);
+        List<Tuple> rows = query(select, "from City c", where, params, "c.cityId");
+        List<CityDTO> cities = toDtos(rows, select, CityDTO.Projected::new);
+
+        if (withDistricts) {
+            Map<Long, List<DistrictDTO>> districts = findChildren(rowKeys(rows), DISTRICT_COLUMNS,
+                    "from District d join d.city c", "c.cityId", "d.districtId", DistrictDTO.Projected::new);
+            for (int i = 0; i < cities.size(); i++) {
+                cities.get(i).setDistricts(districts.getOrDefault(rows.get(i).get(ROW_KEY, Long.class), List.of()));
+            }
+        }
+        return cities;
+    }
+
+    public List<DistrictDTO> findDistricts(String cityCode, FieldSelection selection, Collection<String> excludedCityCodes) {
+        Map<String, String> select = select(DISTRICT_COLUMNS, selection.getFields());
+        if (selection.includes("streetCount")) {
+            select.put("streetCount", STREET_COUNT);
+        }
+        boolean withStreets = selection.includes("streets");
+        if (withStreets) {
+            select.put(ROW_KEY, "d.districtId");
+        }
+        Map<String, Object> params = new HashMap<>();
+        String where = null;
+        if (cityCode != null) {
+            where = "c.cityCode = :cityCode";
+            params.put("cityCode", cityCode);
+        }
+        where = excludeCities(where, excludedCityCodes, params);
+        List<Tuple> rows = query(select, "from District d join d.city c", where, params, "d.districtId");
+        List<DistrictDTO> districts = toDtos(rows, select, DistrictDTO.Projected::new);
+
+        if (withStreets) {
+            Map<Long, List<StreetDTO>> streets = findChildren(rowKeys(rows), STREET_COLUMNS,
+                    "from Street s join s.district d join d.city c", "d.districtId", "s.streetId", StreetDTO.Projected::new);
+            for (int i = 0; i < districts.size(); i++) {
+                districts.get(i).setStreets(streets.getOrDefault(rows.get(i).get(ROW_KEY, Long.class), List.of()));
+            }
+        }
+        return districts;
+    }
+
+    public List<StreetDTO> findStreets(String districtCode, String cityCode, FieldSelection selection, Collection<String> excludedCityCodes) {
+        Map<String, String> select = select(STREET_COLUMNS, selection.getFields());
+        Map<String, Object> params = new HashMap<>();
+        String where = null;
+        if (districtCode != null && cityCode != null) {
+            where = "d.districtCode = :districtCode and c.cityCode = :cityCode";
+            params.put("districtCode", districtCode);
+            params.put("cityCode", cityCode);
+        }
+        where = excludeCities(where, excludedCityCodes, params);
+        List<Tuple> rows = query(select, "from Street s join s.district d join d.city c", where, params, "s.streetId");
+        return toDtos(rows, select, StreetDTO.Projected::new);
+    }
+
+    private <T> Map<Long, List<T>> findChildren(List<Long> parentIds, Map<String, String> columns, String from,
+                                                String parentPath, String orderBy, Supplier<T> factory) {
+        Map<Long, List<T>> children = new HashMap<>();
+        Map<String, String> select = new LinkedHashMap<>(columns);
+        select.put(PARENT_KEY, parentPath);
+        for (int start = 0; start < parentIds.size(); start += IN_CLAUSE_BATCH) {
+            List<Long> batch = parentIds.subList(start, Math.min(start + IN_CLAUSE_BATCH, parentIds.size()));
+            List<Tuple> rows = query(select, from, parentPath + " in :parentIds", Map.of("parentIds", batch), orderBy);
+            List<T> dtos = toDtos(rows, select, factory);
+            for (int i = 0; i < rows.size(); i++) {
+                children.computeIfAbsent(rows.get(i).get(PARENT_KEY, Long.class), key -> new ArrayList<>()).add(dtos.get(i));
+            }
+        }
+        return children;
+    }
+
+    private static String excludeCities(String where, Collection<String> excludedCityCodes, Map<String, Object> params) {
+        if (excludedCityCodes.isEmpty()) {
+            return where;
+        }
+        params.put("excludedCityCodes", excludedCityCodes);
+        String condition = "c.cityCode not in :excludedCityCodes";
+        return where != null ? where + " and " + condition : condition;
+    }
+
+    private List<Tuple> query(Map<String, String> select, String from, String where, Map<String, Object> params, String orderBy) {
+        String jpql = "select " + select.entrySet().stream()
+                .map(column -> column.getValue() + " as " + column.getKey())
+                .collect(Collectors.joining(", "))
+                + " " + from
+                + (where != null ? " where " + where : "")
+                + " order by " + orderBy;
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private static <T> List<T> toDtos(List<Tuple> rows, Map<String, String> select, Supplier<T> factory) {
+        List<T> dtos = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            T dto = factory.get();
+            BeanWrapper wrapper = new BeanWrapperImpl(dto);
+            for (String alias : select.keySet()) {
+                if (!alias.equals(ROW_KEY) && !alias.equals(PARENT_KEY)) {
+                    wrapper.setPropertyValue(alias, row.get(alias));
+                }
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private static List<Long> rowKeys(List<Tuple> rows) {
+        return rows.stream()
+                .map(row -> row.get(ROW_KEY, Long.class))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, String> select(Map<String, String> columns, Set<String> fields) {
+        Map<String, String> select = new LinkedHashMap<>();
+        fields.forEach(field -> select.put(field, columns.get(field)));
+        return select;
+    }
+
+    private static Map<String, String> columns(String... aliasesAndPaths) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (int i = 0; i < aliasesAndPaths.length; i += 2) {
+            columns.put(aliasesAndPaths[i], aliasesAndPaths[i + 1]);
+        }
+        return Collections.unmodifiableMap(columns);
+    }
+}
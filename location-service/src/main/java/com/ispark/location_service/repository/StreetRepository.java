@@ -1,14 +1,22 @@
 package com.ispark.location_service.repository;
 
 import com.ispark.location_service.entity.Street;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface StreetRepository extends JpaRepository<Street, Long> {
     List<Street> findByDistrict_DistrictCodeAndDistrict_City_CityCode(String districtCode, String cityCode);
+    @EntityGraph(attributePaths = {"district", "district.city"})
     Optional<Street> findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(String streetCode, String districtCode, String cityCode);
     Optional<Street> findByStreetNameAndDistrict_DistrictCodeAndDistrict_City_CityCode(String streetName, String districtCode, String cityCode);
     void deleteByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(String streetCode, String districtCode, String cityCode);
+    long countByDistrict_DistrictId(Long districtId);
+    @Query("select s.district.districtId, count(s) from Street s group by s.district.districtId")
+    List<Object[]> countByDistrict();
+    @Query("select s.streetId, s.district.city.cityCode, s.district.districtCode, s.streetCode, s.streetName from Street s")
+    List<Object[]> findAllForSnapshot();
 }
@@ -0,0 +1,30 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import lombok.Getter;
+
+import java.util.function.Supplier;
+
+/**
+ * Outcome of a single request inside a group-committed batch: either its result or the validation
+ * or fence error it alone was rejected with.
+ */
+@Getter
+public class BatchResult<T> {
+
+    private final T value;
+    private final RuntimeException error;
+
+    private BatchResult(T value, RuntimeException error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    static <T> BatchResult<T> attempt(Supplier<T> action) {
+        try {
+            return new BatchResult<>(action.get(), null);
+        } catch (IllegalArgumentException | ServiceUnavailableException e) {
+            return new BatchResult<>(null, e);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.dto.ChangeFeedDTO;
+import com.ispark.location_service.dto.LocationChangeDTO;
+import com.ispark.location_service.entity.City;
+import com.ispark.location_service.entity.District;
+import com.ispark.location_service.entity.LocationChange;
+import com.ispark.location_service.entity.LocationChange.ChangeType;
+import com.ispark.location_service.entity.LocationChange.EntityType;
+import com.ispark.location_service.entity.LocationChangeSequence;
+import com.ispark.location_service.entity.Street;
+import com.ispark.location_service.exception.InvalidRequestException;
+import com.ispark.location_service.repository.LocationChangeRepository;
+import com.ispark.location_service.repository.LocationChangeSequenceRepository;
+import com.ispark.location_service.sharding.ShardContext;
+import com.ispark.location_service.sharding.ShardExecutor;
+import com.ispark.location_service.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Versioned change log of the location hierarchy. Changes are recorded in the same transaction as
+ * the write they describe, so the log never shows a change that was rolled back.
+ *
+ * <p>Versions are handed out when the recording transaction commits, while it holds the lock on the
+ * sequence row until the commit completes. Versions therefore become visible in order: a reader that
+ * sees version n will never later see a committed version below n, and can page on the version alone.
+ */
+@Slf4j
+@Service
+public class ChangeFeedService {
+
+    @Autowired
+    private LocationChangeRepository locationChangeRepository;
+
+    @Autowired
+    private LocationChangeSequenceRepository sequenceRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${location.changes.max-limit:5000}")
+    private int maxLimit;
+
+    @Value("${location.changes.retention-days:7}")
+    private long retentionDays;
+
+    private final Set<String> sequencesCreated = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate sequenceTransaction;
+
+    @PostConstruct
+    void init() {
+        sequenceTransaction = new TransactionTemplate(transactionManager);
+        sequenceTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Recording
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCity(City city, ChangeType changeType) {
+        record(EntityType.CITY, changeType, city.getCityId(), city.getCityCode(), null, null, city.getCityName());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDistrict(District district, ChangeType changeType) {
+        record(EntityType.DISTRICT, changeType, district.getDistrictId(), district.getCity().getCityCode(),
+                district.getDistrictCode(), null, district.getDistrictName());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStreet(Street street, ChangeType changeType) {
+        recordStreet(street, street.getDistrict().getCity().getCityCode(), street.getDistrict().getDistrictCode(), changeType);
+    }
+
+    // A deleted or re-keyed city takes its whole subtree with it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCityTree(City city, String cityCode, ChangeType changeType) {
+        if (changeType == ChangeType.DELETE) {
+            city.getDistricts().forEach(district -> recordDistrictTree(district, cityCode, district.getDistrictCode(), changeType));
+        }
+        record(EntityType.CITY, changeType, city.getCityId(), cityCode, null, null, city.getCityName());
+        if (changeType == ChangeType.UPSERT) {
+            city.getDistricts().forEach(district -> recordDistrictTree(district, cityCode, district.getDistrictCode(), changeType));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDistrictTree(District district, String cityCode, String districtCode, ChangeType changeType) {
+        if (changeType == ChangeType.DELETE) {
+            district.getStreets().forEach(street -> recordStreet(street, cityCode, districtCode, changeType));
+        }
+        record(EntityType.DISTRICT, changeType, district.getDistrictId(), cityCode, districtCode, null, district.getDistrictName());
+        if (changeType == ChangeType.UPSERT) {
+            district.getStreets().forEach(street -> recordStreet(street, cityCode, districtCode, changeType));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStreet(Street street, String cityCode, String districtCode, ChangeType changeType) {
+        record(EntityType.STREET, changeType, street.getStreetId(), cityCode, districtCode, street.getStreetCode(), street.getStreetName());
+    }
+
+    private void record(EntityType entityType, ChangeType changeType, Long entityId,
+                        String cityCode, String districtCode, String streetCode, String name) {
+        ensureSequence();
+        LocationChange change = locationChangeRepository.save(LocationChange.builder()
+                .entityType(entityType)
+                .changeType(changeType)
+                .entityId(entityId)
+                .cityCode(cityCode)
+                .districtCode(districtCode)
+                .streetCode(streetCode)
+                .name(name)
+                .build());
+        // Listeners that keep local read models current receive the change once it has committed
+        LocationChangeDTO published = LocationChangeDTO.fromEntity(change);
+        published.setShard(ShardContext.current());
+        versionAssignment().add(change, published);
+        eventPublisher.publishEvent(published);
+    }
+
+    private VersionAssignment versionAssignment() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof VersionAssignment assignment) {
+                return assignment;
+            }
+        }
+        VersionAssignment assignment = new VersionAssignment();
+        TransactionSynchronizationManager.registerSynchronization(assignment);
+        return assignment;
+    }
+
+    // The sequence row is created once per database, by whichever instance records the first change
+    private void ensureSequence() {
+        String shardId = ShardContext.current() != null ? ShardContext.current() : ShardRouter.DEFAULT_SHARD;
+        if (sequencesCreated.contains(shardId)) {
+            return;
+        }
+        try {
+            sequenceTransaction.executeWithoutResult(status -> {
+                if (!sequenceRepository.existsById(LocationChangeSequence.ID)) {
+                    sequenceRepository.saveAndFlush(LocationChangeSequence.builder()
+                            .id(LocationChangeSequence.ID)
+                            .build());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Change sequence on shard {} was created concurrently", shardId);
+        }
+        sequencesCreated.add(shardId);
+    }
+
+    private class VersionAssignment implements TransactionSynchronization {
+
+        private final List<LocationChange> changes = new ArrayList<>();
+        private final List<LocationChangeDTO> published = new ArrayList<>();
+
+        private void add(LocationChange change, LocationChangeDTO dto) {
+            changes.add(change);
+            published.add(dto);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Everything else is flushed first, so no further row lock is needed while the sequence is held
+            locationChangeRepository.flush();
+            if (sequenceRepository.allocate(LocationChangeSequence.ID, changes.size()) != 1) {
+                throw new IllegalStateException("Change sequence row is missing");
+            }
+            long first = sequenceRepository.findLastVersion(LocationChangeSequence.ID) - changes.size() + 1;
+            for (int i = 0; i < changes.size(); i++) {
+                changes.get(i).setVersion(first + i);
+                published.get(i).setVersion(first + i);
+            }
+            locationChangeRepository.flush();
+        }
+    }
+
+    // Reading
+
+    // Every shard has its own version sequence, so a sharded feed is paged with a cursor that holds
+    // one position per shard, e.g. "shard-a:120,shard-b:87"
+    public ChangeFeedDTO findChanges(String cursor, long since, int limit) {
+        if (!shardRouter.isEnabled()) {
+            long from = cursor != null ? parseVersion(cursor) : since;
+            return shardExecutor.readOnly(() -> readPage(from, Math.max(1, Math.min(limit, maxLimit))));
+        }
+        if (cursor == null && since != 0) {
+            throw new InvalidRequestException("since cannot be used when location data is sharded, continue with cursor instead");
+        }
+
+        Map<String, Long> positions = parseCursor(cursor);
+        int perShard = Math.max(1, Math.min(limit, maxLimit) / shardRouter.getShardIds().size());
+        Map<String, ChangeFeedDTO> pages = shardExecutor.collect(shardId ->
+                shardExecutor.readOnly(() -> readPage(positions.getOrDefault(shardId, 0L), perShard)));
+
+        List<LocationChangeDTO> changes = new ArrayList<>();
+        pages.forEach((shardId, page) -> page.getChanges().forEach(change -> {
+            change.setShard(shardId);
+            changes.add(change);
+        }));
+        return ChangeFeedDTO.builder()
+                .changes(changes)
+                .cursor(formatCursor(pages, ChangeFeedDTO::getNextSince))
+                .latestCursor(formatCursor(pages, ChangeFeedDTO::getLatestVersion))
+                .hasMore(pages.values().stream().anyMatch(ChangeFeedDTO::isHasMore))
+                .resyncRequired(pages.values().stream().anyMatch(ChangeFeedDTO::isResyncRequired))
+                .build();
+    }
+
+    // Every change up to the returned version has committed, none above it is visible yet
+    @Transactional(readOnly = true)
+    public long findLatestVersion() {
+        Long version = locationChangeRepository.findMaxVersion();
+        return version != null ? version : 0;
+    }
+
+    private ChangeFeedDTO readPage(long since, int pageSize) {
+        Long compactedVersion = sequenceRepository.findCompactedVersion(LocationChangeSequence.ID);
+        Long maxVersion = locationChangeRepository.findMaxVersion();
+        long latestVersion = maxVersion != null ? maxVersion : 0;
+
+        // Changes right after since may have been compacted away
+        if (compactedVersion != null && since < compactedVersion) {
+            return ChangeFeedDTO.builder()
+                    .changes(List.of())
+                    .nextSince(since)
+                    .latestVersion(latestVersion)
+                    .resyncRequired(true)
+                    .build();
+        }
+
+        List<LocationChange> page = locationChangeRepository.findByVersionGreaterThanOrderByVersionAsc(since, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = page.size() > pageSize;
+        List<LocationChangeDTO> changes = page.stream()
+                .limit(pageSize)
+                .map(LocationChangeDTO::fromEntity)
+                .collect(Collectors.toList());
+
+        return ChangeFeedDTO.builder()
+                .changes(changes)
+                .nextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getVersion())
+                .latestVersion(latestVersion)
+                .hasMore(hasMore)
+                .resyncRequired(false)
+                .build();
+    }
+
+    private Map<String, Long> parseCursor(String cursor) {
+        Map<String, Long> positions = new HashMap<>();
+        if (cursor == null || cursor.isBlank()) {
+            return positions;
+        }
+        for (String position : cursor.split(",")) {
+            String[] parts = position.trim().split(":");
+            if (parts.length != 2 || !shardRouter.getShardIds().contains(parts[0])) {
+                throw new InvalidRequestException("Invalid change feed cursor: " + cursor);
+            }
+            positions.put(parts[0], parseVersion(parts[1]));
+        }
+        return positions;
+    }
+
+    private long parseVersion(String version) {
+        try {
+            return Long.parseLong(version.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid change feed version: " + version);
+        }
+    }
+
+    private String formatCursor(Map<String, ChangeFeedDTO> pages, Function<ChangeFeedDTO, Long> position) {
+        return pages.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + position.apply(entry.getValue()))
+                .collect(Collectors.joining(","));
+    }
+
+    // Compaction
+
+    @Scheduled(fixedDelayString = "${location.changes.compaction-interval-ms:3600000}")
+    public void compact() {
+        shardExecutor.collect(shardId -> shardExecutor.inTransaction(() -> compactShard(shardId)));
+    }
+
+    private int compactShard(String shardId) {
+        Long maxVersion = locationChangeRepository.findMaxVersion();
+        if (maxVersion == null) {
+            return 0;
+        }
+        // The newest change is always kept so consumers can tell a compacted log from an empty one
+        Long compactThrough = locationChangeRepository.findMaxVersionOlderThan(LocalDateTime.now().minusDays(retentionDays), maxVersion);
+        if (compactThrough == null) {
+            return 0;
+        }
+        // Consumers behind the watermark are told to resync, whatever gaps the remaining versions have
+        sequenceRepository.advanceCompactedVersion(LocationChangeSequence.ID, compactThrough);
+        int removed = locationChangeRepository.deleteThroughVersion(compactThrough);
+        if (removed > 0) {
+            log.info("Compacted {} location changes older than {} days on shard {}", removed, retentionDays, shardId);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,143 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import com.ispark.location_service.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Queue of pending creates for one kind of entity on one shard. A single flusher thread takes the
+ * first waiting request, gathers whatever arrives within the wait window up to the batch size and
+ * commits the batch in one transaction. If the batch transaction fails as a whole, its requests are
+ * retried one by one so each caller gets the outcome it would have had without batching. Anything
+ * else that goes wrong while flushing fails the callers still waiting in that batch, and the
+ * flusher carries on with the next one.
+ */
+@Slf4j
+class GroupCommitQueue<R, T> implements Runnable {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final BlockingQueue<Pending<R, T>> queue = new LinkedBlockingQueue<>();
+    private final String shardId;
+    private final Function<List<R>, List<BatchResult<T>>> batchCreate;
+    private final Function<R, T> singleCreate;
+    private final long maxWaitNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+    private final Thread flusher;
+
+    GroupCommitQueue(String name, String shardId,
+                     Function<List<R>, List<BatchResult<T>>> batchCreate, Function<R, T> singleCreate,
+                     long maxWaitMs, int maxBatchSize, DistributionSummary batchSizes, Counter fallbacks) {
+        this.shardId = shardId;
+        this.batchCreate = batchCreate;
+        this.singleCreate = singleCreate;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = batchSizes;
+        this.fallbacks = fallbacks;
+        this.flusher = new Thread(this, "group-commit-" + name + "-" + shardId);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    CompletableFuture<T> submit(R request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        queue.add(new Pending<>(request, result));
+        return result;
+    }
+
+    void shutdown() {
+        flusher.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Pending<R, T>> batch;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                flush(batch);
+            } catch (Throwable e) {
+                // The flusher is the only thread serving this queue, so it has to outlive any batch
+                log.error("Group commit of {} requests on shard {} failed", batch.size(), shardId, e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        }
+        List<Pending<R, T>> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pending -> pending.result.completeExceptionally(
+                new ServiceUnavailableException("Service is shutting down", RETRY_AFTER_SECONDS)));
+    }
+
+    private List<Pending<R, T>> nextBatch() throws InterruptedException {
+        List<Pending<R, T>> batch = new ArrayList<>();
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            Pending<R, T> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void flush(List<Pending<R, T>> batch) {
+        batchSizes.record(batch.size());
+        List<R> requests = batch.stream().map(pending -> pending.request).toList();
+        List<BatchResult<T>> results;
+        try {
+            results = ShardContext.callOn(shardId, () -> batchCreate.apply(requests));
+        } catch (RuntimeException e) {
+            log.debug("Group commit of {} requests failed, retrying them one by one", batch.size(), e);
+            fallbacks.increment();
+            batch.forEach(this::createAlone);
+            return;
+        }
+        // Results are only handed out after the batch transaction has committed
+        for (int i = 0; i < batch.size(); i++) {
+            BatchResult<T> outcome = results.get(i);
+            if (outcome.getError() != null) {
+                batch.get(i).result.completeExceptionally(outcome.getError());
+            } else {
+                batch.get(i).result.complete(outcome.getValue());
+            }
+        }
+    }
+
+    private void createAlone(Pending<R, T> pending) {
+        try {
+            pending.result.complete(singleCreate.apply(pending.request));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private static class Pending<R, T> {
+        private final R request;
+        private final CompletableFuture<T> result;
+
+        private Pending(R request, CompletableFuture<T> result) {
+            this.request = request;
+            this.result = result;
+        }
+    }
+}
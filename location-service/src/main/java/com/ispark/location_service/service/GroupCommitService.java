@@ -0,0 +1,110 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import com.ispark.location_service.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Opt-in group commit for district and street creation. Concurrent creates for the same shard are
+ * queued for a few milliseconds and written in a single transaction, so a burst of creates costs
+ * one commit per batch instead of one per request. Every caller still receives its own result or
+ * its own error.
+ */
+@Component
+public class GroupCommitService {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final ConcurrentMap<String, GroupCommitQueue<?, ?>> queues = new ConcurrentHashMap<>();
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${location.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${location.group-commit.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${location.group-commit.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${location.group-commit.timeout-ms:10000}")
+    private long timeoutMs;
+
+    public DistrictDTO createDistrict(DistrictDTO districtDTO) {
+        return submit("districts", districtDTO.getCityCode(), districtDTO,
+                locationService::createDistricts, locationService::createDistrict);
+    }
+
+    public StreetDTO createStreet(StreetDTO streetDTO) {
+        return submit("streets", streetDTO.getCityCode(), streetDTO,
+                locationService::createStreets, locationService::createStreet);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        queues.values().forEach(GroupCommitQueue::shutdown);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R, T> T submit(String name, String cityCode, R request,
+                            Function<List<R>, List<BatchResult<T>>> batchCreate, Function<R, T> singleCreate) {
+        // Requests that cannot be routed, or whose city is being moved, take the regular path and its errors
+        if (!enabled || cityCode == null || (shardRouter.isEnabled() && shardRouter.isFenced(cityCode))) {
+            return singleCreate.apply(request);
+        }
+
+        String shardId = shardRouter.isEnabled() ? shardRouter.shardFor(cityCode) : ShardRouter.DEFAULT_SHARD;
+        GroupCommitQueue<R, T> queue = (GroupCommitQueue<R, T>) queues.computeIfAbsent(name + '|' + shardId, key ->
+                new GroupCommitQueue<>(name, shardId, batchCreate, singleCreate, maxWaitMs, maxBatchSize,
+                        DistributionSummary.builder("location.group-commit.batch.size")
+                                .description("Requests committed together in one transaction")
+                                .tag("entity", name)
+                                .register(meterRegistry),
+                        Counter.builder("location.group-commit.fallbacks")
+                                .description("Batches that failed as a whole and were retried request by request")
+                                .tag("entity", name)
+                                .register(meterRegistry)));
+        return await(queue.submit(request));
+    }
+
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Timed out waiting for a group commit", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for a group commit", RETRY_AFTER_SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Group commit failed", e.getCause());
+        }
+    }
+}
@@ -2,24 +2,41 @@ package com.ispark.location_service.service;
 
 import com.ispark.location_service.dto.CityDTO;
 import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.FieldSelection;
 import com.ispark.location_service.dto.StreetDTO;
 import com.ispark.location_service.entity.City;
 import com.ispark.location_service.entity.District;
+import com.ispark.location_service.entity.LocationChange.ChangeType;
 import com.ispark.location_service.entity.Street;
 import com.ispark.location_service.repository.CityRepository;
 import com.ispark.location_service.repository.DistrictRepository;
+import com.ispark.location_service.repository.LocationProjectionRepository;
 import com.ispark.location_service.repository.StreetRepository;
+import com.ispark.location_service.sharding.ShardContext;
+import com.ispark.location_service.sharding.ShardExecutor;
+import com.ispark.location_service.sharding.ShardKey;
+import com.ispark.location_service.sharding.ShardRouter;
+import com.ispark.location_service.sharding.WriteFence;
+import com.ispark.location_service.snapshot.SnapshotReadModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class LocationService {
 
+    private static final Set<String> CITY_INCLUDES = Set.of("districts");
+    private static final Set<String> DISTRICT_INCLUDES = Set.of("streets", "streetCount");
+
     @Autowired
     private CityRepository cityRepository;
 
@@ -29,11 +46,36 @@ public class LocationService {
     @Autowired
     private StreetRepository streetRepository;
 
+    @Autowired
+    private LocationProjectionRepository locationProjectionRepository;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private LocationStatsService locationStatsService;
+
+    @Autowired
+    private SnapshotReadModel snapshotReadModel;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private WriteFence writeFence;
+
     // City Operations
 
     @Transactional
-    public CityDTO createCity(CityDTO cityDTO) {
-        if (cityRepository.findByCityName(cityDTO.getCityName()).isPresent()) {
+    public CityDTO createCity(@ShardKey CityDTO cityDTO) {
+        claimCityName(cityDTO.getCityName());
+        if (existsOnAnyShard(() -> cityRepository.findByCityName(cityDTO.getCityName()))) {
             throw new IllegalArgumentException("City with this name already exists");
         }
         if (cityRepository.findByCityCode(cityDTO.getCityCode()).isPresent()) {
@@ -41,51 +83,108 @@ public class LocationService {
         }
         City city = cityDTO.toEntity();
         City savedCity = cityRepository.save(city);
+        changeFeedService.recordCity(savedCity, ChangeType.UPSERT);
+        locationStatsService.cityCreated(savedCity);
         return CityDTO.fromEntity(savedCity);
     }
 
-    public Optional<CityDTO> findCityByCode(String cityCode) {
-        return cityRepository.findByCityCode(cityCode)
-                .map(CityDTO::fromEntity);
+    public Optional<CityDTO> findCityByCode(@ShardKey String cityCode) {
+        if (snapshotReadModel.isServing()) {
+            return snapshotReadModel.findCity(cityCode);
+        }
+        return shardExecutor.readOnly(() -> cityRepository.findByCityCode(cityCode)
+                .map(CityDTO::fromEntity));
     }
 
     public List<CityDTO> findAllCities() {
-        return cityRepository.findAll().stream()
+        return shardExecutor.scatterReadOnly(() -> cityRepository.findAll().stream()
+                .filter(city -> shardRouter.isOwnedByCurrentShard(city.getCityCode()))
                 .map(CityDTO::fromEntity)
+                .collect(Collectors.toList()));
+    }
+
+    // Up to limit city codes, read page-wise from every shard without touching districts or streets
+    public List<String> findSampleCityCodes(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return shardExecutor.scatterReadOnly(() -> cityRepository.findCityCodes(PageRequest.of(0, limit))).stream()
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
+    // Without fields or include the full legacy representation is returned
+    public List<CityDTO> findAllCities(String fields, String include) {
+        FieldSelection selection = FieldSelection.parse(fields, include, LocationProjectionRepository.CITY_COLUMNS.keySet(), CITY_INCLUDES);
+        if (!selection.isExplicit()) {
+            return findAllCities();
+        }
+        return shardExecutor.scatter(() -> locationProjectionRepository.findCities(selection, foreignCities()));
+    }
+
     @Transactional
-    public Optional<CityDTO> updateCityByCode(String cityCode, CityDTO updatedCityDTO) {
+    public Optional<CityDTO> updateCityByCode(@ShardKey String cityCode, CityDTO updatedCityDTO) {
+        writeFence.checkCityWrite(cityCode);
         return cityRepository.findByCityCode(cityCode).map(city -> {
-            if (!city.getCityName().equals(updatedCityDTO.getCityName()) &&
-                    cityRepository.findByCityName(updatedCityDTO.getCityName()).isPresent()) {
-                throw new IllegalArgumentException("City with this name already exists");
+            if (!city.getCityName().equals(updatedCityDTO.getCityName())) {
+                claimCityName(updatedCityDTO.getCityName());
+                if (existsOnAnyShard(() -> cityRepository.findByCityName(updatedCityDTO.getCityName()))) {
+                    throw new IllegalArgumentException("City with this name already exists");
+                }
             }
             if (!city.getCityCode().equals(updatedCityDTO.getCityCode()) &&
-                    cityRepository.findByCityCode(updatedCityDTO.getCityCode()).isPresent()) {
+                    existsOnAnyShard(() -> cityRepository.findByCityCode(updatedCityDTO.getCityCode()))) {
                 throw new IllegalArgumentException("City with this code already exists");
             }
+            boolean codeChanged = !city.getCityCode().equals(updatedCityDTO.getCityCode());
+            if (codeChanged) {
+                changeFeedService.recordCityTree(city, city.getCityCode(), ChangeType.DELETE);
+                // The renamed city stays where its data is, even if the new code hashes elsewhere
+                if (shardRouter.isEnabled() && !ShardContext.current().equals(shardRouter.shardFor(updatedCityDTO.getCityCode()))) {
+                    shardRouter.place(updatedCityDTO.getCityCode(), ShardContext.current());
+                }
+            }
             city.setCityName(updatedCityDTO.getCityName());
             city.setCityCode(updatedCityDTO.getCityCode());
             city.setUpdatedAt(java.time.LocalDateTime.now());
             City updatedCity = cityRepository.save(city);
+            if (codeChanged) {
+                changeFeedService.recordCityTree(updatedCity, updatedCity.getCityCode(), ChangeType.UPSERT);
+            } else {
+                changeFeedService.recordCity(updatedCity, ChangeType.UPSERT);
+            }
             return CityDTO.fromEntity(updatedCity);
         });
     }
 
     @Transactional
-    public void deleteCityByCode(String cityCode) {
-        if (!cityRepository.findByCityCode(cityCode).isPresent()) {
-            throw new IllegalArgumentException("City not found");
-        }
+    public void deleteCityByCode(@ShardKey String cityCode) {
+        writeFence.checkCityWrite(cityCode);
+        City city = cityRepository.findByCityCode(cityCode)
+                .orElseThrow(() -> new IllegalArgumentException("City not found"));
+        changeFeedService.recordCityTree(city, cityCode, ChangeType.DELETE);
+        locationStatsService.cityDeleted(city);
         cityRepository.deleteByCityCode(cityCode);
     }
 
     // District Operations
 
     @Transactional
-    public DistrictDTO createDistrict(DistrictDTO districtDTO) {
+    public DistrictDTO createDistrict(@ShardKey DistrictDTO districtDTO) {
+        return insertDistrict(districtDTO);
+    }
+
+    // Creates a group-committed batch in one transaction. A request that fails validation is rejected
+    // before it writes anything, so it fails alone and the rest of the batch still commits.
+    @Transactional
+    public List<BatchResult<DistrictDTO>> createDistricts(List<DistrictDTO> districtDTOs) {
+        return districtDTOs.stream()
+                .map(districtDTO -> BatchResult.attempt(() -> insertDistrict(districtDTO)))
+                .collect(Collectors.toList());
+    }
+
+    private DistrictDTO insertDistrict(DistrictDTO districtDTO) {
+        writeFence.checkChildWrite(districtDTO.getCityCode());
         City city = cityRepository.findByCityCode(districtDTO.getCityCode())
                 .orElseThrow(() -> new IllegalArgumentException("City not found"));
 
@@ -98,22 +197,28 @@ public class LocationService {
 
         District district = districtDTO.toEntity(city);
         District savedDistrict = districtRepository.save(district);
+        changeFeedService.recordDistrict(savedDistrict, ChangeType.UPSERT);
+        locationStatsService.districtCreated(savedDistrict);
         return DistrictDTO.fromEntity(savedDistrict);
     }
 
-    public Optional<DistrictDTO> findDistrictByCode(String districtCode, String cityCode) {
-        return districtRepository.findByDistrictCodeAndCity_CityCode(districtCode, cityCode)
-                .map(DistrictDTO::fromEntity);
+    public Optional<DistrictDTO> findDistrictByCode(String districtCode, @ShardKey String cityCode) {
+        if (snapshotReadModel.isServing()) {
+            return snapshotReadModel.findDistrict(cityCode, districtCode);
+        }
+        return shardExecutor.readOnly(() -> districtRepository.findByDistrictCodeAndCity_CityCode(districtCode, cityCode)
+                .map(DistrictDTO::fromEntity));
     }
 
-    public List<DistrictDTO> findDistrictsByCityCode(String cityCode) {
-        return districtRepository.findByCity_CityCode(cityCode).stream()
-                .map(DistrictDTO::fromEntity)
-                .collect(Collectors.toList());
+    public List<DistrictDTO> findDistrictsByCityCode(@ShardKey String cityCode, String fields, String include) {
+        FieldSelection selection = FieldSelection.parse(fields, include, LocationProjectionRepository.DISTRICT_COLUMNS.keySet(), DISTRICT_INCLUDES);
+        return requestCoalescer.execute("findDistrictsByCityCode", List.of(cityCode, selection.key()), () ->
+                locationProjectionRepository.findDistricts(cityCode, selection, Set.of()));
     }
 
     @Transactional
-    public Optional<DistrictDTO> updateDistrictByCode(String districtCode, String cityCode, DistrictDTO updatedDistrictDTO) {
+    public Optional<DistrictDTO> updateDistrictByCode(String districtCode, @ShardKey String cityCode, DistrictDTO updatedDistrictDTO) {
+        writeFence.checkChildWrite(cityCode);
         return districtRepository.findByDistrictCodeAndCity_CityCode(districtCode, cityCode).map(district -> {
             if (!district.getDistrictName().equals(updatedDistrictDTO.getDistrictName()) &&
                     districtRepository.findByDistrictNameAndCity_CityCode(updatedDistrictDTO.getDistrictName(), cityCode).isPresent()) {
@@ -123,26 +228,49 @@ public class LocationService {
                     districtRepository.findByDistrictCodeAndCity_CityCode(updatedDistrictDTO.getDistrictCode(), cityCode).isPresent()) {
                 throw new IllegalArgumentException("District with this code already exists in the city");
             }
+            boolean codeChanged = !district.getDistrictCode().equals(updatedDistrictDTO.getDistrictCode());
+            if (codeChanged) {
+                changeFeedService.recordDistrictTree(district, cityCode, district.getDistrictCode(), ChangeType.DELETE);
+            }
             district.setDistrictName(updatedDistrictDTO.getDistrictName());
             district.setDistrictCode(updatedDistrictDTO.getDistrictCode());
             district.setUpdatedAt(java.time.LocalDateTime.now());
             District updatedDistrict = districtRepository.save(district);
+            if (codeChanged) {
+                changeFeedService.recordDistrictTree(updatedDistrict, cityCode, updatedDistrict.getDistrictCode(), ChangeType.UPSERT);
+            } else {
+                changeFeedService.recordDistrict(updatedDistrict, ChangeType.UPSERT);
+            }
             return DistrictDTO.fromEntity(updatedDistrict);
         });
     }
 
     @Transactional
-    public void deleteDistrictByCode(String districtCode, String cityCode) {
-        if (!districtRepository.findByDistrictCodeAndCity_CityCode(districtCode, cityCode).isPresent()) {
-            throw new IllegalArgumentException("District not found");
-        }
+    public void deleteDistrictByCode(String districtCode, @ShardKey String cityCode) {
+        writeFence.checkChildWrite(cityCode);
+        District district = districtRepository.findByDistrictCodeAndCity_CityCode(districtCode, cityCode)
+                .orElseThrow(() -> new IllegalArgumentException("District not found"));
+        changeFeedService.recordDistrictTree(district, cityCode, districtCode, ChangeType.DELETE);
+        locationStatsService.districtDeleted(district);
         districtRepository.deleteByDistrictCodeAndCity_CityCode(districtCode, cityCode);
     }
 
     // Street Operations
 
     @Transactional
-    public StreetDTO createStreet(StreetDTO streetDTO) {
+    public StreetDTO createStreet(@ShardKey StreetDTO streetDTO) {
+        return insertStreet(streetDTO);
+    }
+
+    @Transactional
+    public List<BatchResult<StreetDTO>> createStreets(List<StreetDTO> streetDTOs) {
+        return streetDTOs.stream()
+                .map(streetDTO -> BatchResult.attempt(() -> insertStreet(streetDTO)))
+                .collect(Collectors.toList());
+    }
+
+    private StreetDTO insertStreet(StreetDTO streetDTO) {
+        writeFence.checkChildWrite(streetDTO.getCityCode());
         District district = districtRepository.findByDistrictCodeAndCity_CityCode(streetDTO.getDistrictCode(), streetDTO.getCityCode())
                 .orElseThrow(() -> new IllegalArgumentException("District not found"));
 
@@ -155,22 +283,28 @@ public class LocationService {
 
         Street street = streetDTO.toEntity(district);
         Street savedStreet = streetRepository.save(street);
+        changeFeedService.recordStreet(savedStreet, ChangeType.UPSERT);
+        locationStatsService.streetCreated(savedStreet);
         return StreetDTO.fromEntity(savedStreet);
     }
 
-    public Optional<StreetDTO> findStreetByCode(String streetCode, String districtCode, String cityCode) {
-        return streetRepository.findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(streetCode, districtCode, cityCode)
-                .map(StreetDTO::fromEntity);
+    public Optional<StreetDTO> findStreetByCode(String streetCode, String districtCode, @ShardKey String cityCode) {
+        if (snapshotReadModel.isServing()) {
+            return snapshotReadModel.findStreet(cityCode, districtCode, streetCode);
+        }
+        return requestCoalescer.execute("findStreetByCode", List.of(cityCode, districtCode, streetCode), () ->
+                streetRepository.findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(streetCode, districtCode, cityCode)
+                        .map(StreetDTO::fromEntity));
     }
 
-    public List<StreetDTO> findStreetsByDistrictCode(String districtCode, String cityCode) {
-        return streetRepository.findByDistrict_DistrictCodeAndDistrict_City_CityCode(districtCode, cityCode).stream()
-                .map(StreetDTO::fromEntity)
-                .collect(Collectors.toList());
+    public List<StreetDTO> findStreetsByDistrictCode(String districtCode, @ShardKey String cityCode, String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, null, LocationProjectionRepository.STREET_COLUMNS.keySet(), Set.of());
+        return locationProjectionRepository.findStreets(districtCode, cityCode, selection, Set.of());
     }
 
     @Transactional
-    public Optional<StreetDTO> updateStreetByCode(String streetCode, String districtCode, String cityCode, StreetDTO updatedStreetDTO) {
+    public Optional<StreetDTO> updateStreetByCode(String streetCode, String districtCode, @ShardKey String cityCode, StreetDTO updatedStreetDTO) {
+        writeFence.checkChildWrite(cityCode);
         return streetRepository.findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(streetCode, districtCode, cityCode).map(street -> {
             if (!street.getStreetName().equals(updatedStreetDTO.getStreetName()) &&
                     streetRepository.findByStreetNameAndDistrict_DistrictCodeAndDistrict_City_CityCode(updatedStreetDTO.getStreetName(), districtCode, cityCode).isPresent()) {
@@ -180,35 +314,65 @@ public class LocationService {
                     streetRepository.findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(updatedStreetDTO.getStreetCode(), districtCode, cityCode).isPresent()) {
                 throw new IllegalArgumentException("Street with this code already exists in the district");
             }
+            if (!street.getStreetCode().equals(updatedStreetDTO.getStreetCode())) {
+                changeFeedService.recordStreet(street, ChangeType.DELETE);
+            }
             street.setStreetName(updatedStreetDTO.getStreetName());
             street.setStreetCode(updatedStreetDTO.getStreetCode());
             street.setUpdatedAt(java.time.LocalDateTime.now());
             Street updatedStreet = streetRepository.save(street);
+            changeFeedService.recordStreet(updatedStreet, ChangeType.UPSERT);
             return StreetDTO.fromEntity(updatedStreet);
         });
     }
 
     @Transactional
-    public void deleteStreetByCode(String streetCode, String districtCode, String cityCode) {
-        if (!streetRepository.findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(streetCode, districtCode, cityCode).isPresent()) {
-            throw new IllegalArgumentException("Street not found");
-        }
+    public void deleteStreetByCode(String streetCode, String districtCode, @ShardKey String cityCode) {
+        writeFence.checkChildWrite(cityCode);
+        Street street = streetRepository.findByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(streetCode, districtCode, cityCode)
+                .orElseThrow(() -> new IllegalArgumentException("Street not found"));
+        changeFeedService.recordStreet(street, ChangeType.DELETE);
+        locationStatsService.streetDeleted(street);
         streetRepository.deleteByStreetCodeAndDistrict_DistrictCodeAndDistrict_City_CityCode(streetCode, districtCode, cityCode);
     }
 
     // Retrieve all districts
-    @Transactional(readOnly = true)
-    public List<DistrictDTO> findAllDistricts() {
-        return districtRepository.findAll().stream()
-                .map(DistrictDTO::fromEntity)
-                .collect(Collectors.toList());
+    public List<DistrictDTO> findAllDistricts(String fields, String include) {
+        FieldSelection selection = FieldSelection.parse(fields, include, LocationProjectionRepository.DISTRICT_COLUMNS.keySet(), DISTRICT_INCLUDES);
+        return shardExecutor.scatter(() -> locationProjectionRepository.findDistricts(null, selection, foreignCities()));
     }
 
     // Retrieve all streets
-    @Transactional(readOnly = true)
-    public List<StreetDTO> findAllStreets() {
-        return streetRepository.findAll().stream()
-                .map(StreetDTO::fromEntity)
-                .collect(Collectors.toList());
+    public List<StreetDTO> findAllStreets(String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, null, LocationProjectionRepository.STREET_COLUMNS.keySet(), Set.of());
+        return shardExecutor.scatter(() -> locationProjectionRepository.findStreets(null, null, selection, foreignCities()));
+    }
+
+    // Cities caught in a move have a second copy that lists must skip
+    private Set<String> foreignCities() {
+        return shardRouter.findForeignCities(ShardContext.current());
+    }
+
+    // existsOnAnyShard only sees committed cities, and each shard only enforces unique names for its
+    // own rows. The claim keeps a create or rename on another shard from taking the same name until
+    // this transaction has finished, after which the committed city is visible to its check.
+    private void claimCityName(String cityName) {
+        if (!shardRouter.isEnabled()) {
+            return;
+        }
+        String token = shardRouter.claimCityName(cityName);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                shardRouter.releaseCityName(cityName, token);
+            }
+        });
+    }
+
+    // City names are unique across all shards, not just the one owning the city
+    private boolean existsOnAnyShard(Supplier<Optional<City>> lookup) {
+        return !shardExecutor.scatter(() -> lookup.get().stream()
+                .map(City::getCityId)
+                .collect(Collectors.toList())).isEmpty();
     }
 }
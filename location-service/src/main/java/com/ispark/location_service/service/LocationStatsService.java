@@ -0,0 +1,239 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.dto.CityStatsDTO;
+import com.ispark.location_service.dto.DistrictStatsDTO;
+import com.ispark.location_service.entity.City;
+import com.ispark.location_service.entity.CityStats;
+import com.ispark.location_service.entity.District;
+import com.ispark.location_service.entity.DistrictStats;
+import com.ispark.location_service.entity.Street;
+import com.ispark.location_service.repository.CityRepository;
+import com.ispark.location_service.repository.CityStatsRepository;
+import com.ispark.location_service.repository.DistrictRepository;
+import com.ispark.location_service.repository.DistrictStatsRepository;
+import com.ispark.location_service.repository.StreetRepository;
+import com.ispark.location_service.sharding.ShardExecutor;
+import com.ispark.location_service.sharding.ShardKey;
+import com.ispark.location_service.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * District and street counters per city and street counters per district. The counters are
+ * adjusted in the same transaction as the create or delete that changes them, so reading them
+ * never requires loading the collections. A periodic reconciliation repairs any drift.
+ */
+@Slf4j
+@Service
+public class LocationStatsService {
+
+    @Autowired
+    private CityStatsRepository cityStatsRepository;
+
+    @Autowired
+    private DistrictStatsRepository districtStatsRepository;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private StreetRepository streetRepository;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Counting
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cityCreated(City city) {
+        cityStatsRepository.save(CityStats.builder().cityId(city.getCityId()).build());
+    }
+
+    // A city copied with its whole tree, as done when moving it between shards
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cityTreeCreated(City city) {
+        long streetCount = 0;
+        for (District district : city.getDistricts()) {
+            streetCount += district.getStreets().size();
+            districtStatsRepository.save(DistrictStats.builder()
+                    .districtId(district.getDistrictId())
+                    .cityId(city.getCityId())
+                    .streetCount(district.getStreets().size())
+                    .build());
+        }
+        cityStatsRepository.save(CityStats.builder()
+                .cityId(city.getCityId())
+                .districtCount(city.getDistricts().size())
+                .streetCount(streetCount)
+                .build());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cityDeleted(City city) {
+        districtStatsRepository.deleteByCityId(city.getCityId());
+        cityStatsRepository.deleteById(city.getCityId());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void districtCreated(District district) {
+        districtStatsRepository.save(DistrictStats.builder()
+                .districtId(district.getDistrictId())
+                .cityId(district.getCity().getCityId())
+                .build());
+        cityStatsRepository.increment(district.getCity().getCityId(), 1, 0);
+    }
+
+    // Must run before the delete, the cascaded streets are counted from the database
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void districtDeleted(District district) {
+        long streetCount = streetRepository.countByDistrict_DistrictId(district.getDistrictId());
+        cityStatsRepository.increment(district.getCity().getCityId(), -1, -streetCount);
+        districtStatsRepository.deleteById(district.getDistrictId());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void streetCreated(Street street) {
+        districtStatsRepository.increment(street.getDistrict().getDistrictId(), 1);
+        cityStatsRepository.increment(street.getDistrict().getCity().getCityId(), 0, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void streetDeleted(Street street) {
+        districtStatsRepository.increment(street.getDistrict().getDistrictId(), -1);
+        cityStatsRepository.increment(street.getDistrict().getCity().getCityId(), 0, -1);
+    }
+
+    // Reading
+
+    @Transactional(readOnly = true)
+    public Optional<CityStatsDTO> findCityStats(@ShardKey String cityCode) {
+        return cityStatsRepository.findStatsByCityCode(cityCode);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DistrictStatsDTO> findDistrictStats(@ShardKey String cityCode) {
+        return districtStatsRepository.findStatsByCityCode(cityCode);
+    }
+
+    public List<CityStatsDTO> findAllCityStats() {
+        return shardExecutor.scatterReadOnly(() -> cityStatsRepository.findAllStats().stream()
+                .filter(stats -> shardRouter.isOwnedByCurrentShard(stats.getCityCode()))
+                .collect(Collectors.toList()));
+    }
+
+    // Reconciliation
+
+    @Scheduled(initialDelayString = "${location.stats.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${location.stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        shardExecutor.collect(shardId -> shardExecutor.inTransaction(() -> reconcileShard(shardId)));
+    }
+
+    // Counters are read before the rows they count. A write committed in between changes both the
+    // counted rows and the counter, so the conditional repair below leaves that counter alone.
+    private int reconcileShard(String shardId) {
+        Map<Long, CityStats> cityStats = cityStatsRepository.findAll().stream()
+                .collect(Collectors.toMap(CityStats::getCityId, Function.identity()));
+        Map<Long, DistrictStats> districtStats = districtStatsRepository.findAll().stream()
+                .collect(Collectors.toMap(DistrictStats::getDistrictId, Function.identity()));
+
+        Map<Long, CityStats> actualCities = new HashMap<>();
+        cityRepository.findAllCityIds().forEach(cityId -> actualCities.put(cityId, CityStats.builder().cityId(cityId).build()));
+        Map<Long, DistrictStats> actualDistricts = new HashMap<>();
+        for (Object[] row : districtRepository.findAllDistrictAndCityIds()) {
+            Long districtId = (Long) row[0];
+            Long cityId = (Long) row[1];
+            actualDistricts.put(districtId, DistrictStats.builder().districtId(districtId).cityId(cityId).build());
+            CityStats city = actualCities.computeIfAbsent(cityId, id -> CityStats.builder().cityId(id).build());
+            city.setDistrictCount(city.getDistrictCount() + 1);
+        }
+        for (Object[] row : streetRepository.countByDistrict()) {
+            DistrictStats district = actualDistricts.get((Long) row[0]);
+            if (district == null) {
+                continue;
+            }
+            long streetCount = (Long) row[1];
+            district.setStreetCount(streetCount);
+            CityStats city = actualCities.get(district.getCityId());
+            city.setStreetCount(city.getStreetCount() + streetCount);
+        }
+
+        int repairedDistricts = reconcileDistricts(districtStats, actualDistricts);
+        int repairedCities = reconcileCities(cityStats, actualCities);
+        if (repairedCities + repairedDistricts > 0) {
+            log.warn("Repaired {} city and {} district counters on shard {}", repairedCities, repairedDistricts, shardId);
+        }
+        return repairedCities + repairedDistricts;
+    }
+
+    private int reconcileCities(Map<Long, CityStats> counters, Map<Long, CityStats> actual) {
+        int repaired = 0;
+        for (CityStats expected : actual.values()) {
+            CityStats seen = counters.remove(expected.getCityId());
+            if (seen == null) {
+                if (!cityStatsRepository.existsById(expected.getCityId())) {
+                    cityStatsRepository.save(expected);
+                    repaired++;
+                }
+            } else if (seen.getDistrictCount() != expected.getDistrictCount() || seen.getStreetCount() != expected.getStreetCount()) {
+                repaired += cityStatsRepository.repair(expected.getCityId(), expected.getDistrictCount(), expected.getStreetCount(),
+                        seen.getDistrictCount(), seen.getStreetCount());
+            }
+        }
+        // Whatever is left belongs to cities that no longer exist
+        cityStatsRepository.deleteAllByIdInBatch(new ArrayList<>(counters.keySet()));
+        repaired += counters.size();
+        countDrift("city", repaired);
+        return repaired;
+    }
+
+    private int reconcileDistricts(Map<Long, DistrictStats> counters, Map<Long, DistrictStats> actual) {
+        int repaired = 0;
+        for (DistrictStats expected : actual.values()) {
+            DistrictStats seen = counters.remove(expected.getDistrictId());
+            if (seen == null) {
+                if (!districtStatsRepository.existsById(expected.getDistrictId())) {
+                    districtStatsRepository.save(expected);
+                    repaired++;
+                }
+            } else if (seen.getStreetCount() != expected.getStreetCount()) {
+                repaired += districtStatsRepository.repair(expected.getDistrictId(), expected.getStreetCount(), seen.getStreetCount());
+            }
+        }
+        districtStatsRepository.deleteAllByIdInBatch(new ArrayList<>(counters.keySet()));
+        repaired += counters.size();
+        countDrift("district", repaired);
+        return repaired;
+    }
+
+    private void countDrift(String level, int repaired) {
+        Counter.builder("location.stats.drift")
+                .description("Counters found out of line with the data and repaired")
+                .tag("level", level)
+                .register(meterRegistry)
+                .increment(repaired);
+    }
+}
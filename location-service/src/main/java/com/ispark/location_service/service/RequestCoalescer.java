@@ -0,0 +1,106 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical lookups. The first caller for a key runs the load, every
+ * concurrent caller with the same key waits for that load and receives its result or its error.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${location.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${location.coalescing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("location.coalescer.inflight", inFlight, ConcurrentMap::size)
+                .description("Distinct lookups currently being loaded")
+                .register(meterRegistry);
+    }
+
+    // Keys are compared by equals, so a key made of several values should be a List of them
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        List<Object> flightKey = List.of(operation, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            count(operation, "deduplicated");
+            return (T) await(operation, existing);
+        }
+
+        count(operation, "load");
+        try {
+            T value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private Object await(String operation, CompletableFuture<Object> flight) {
+        try {
+            return flight.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count(operation, "timeout");
+            throw new ServiceUnavailableException("Timed out waiting for a shared lookup", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for a shared lookup", RETRY_AFTER_SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void count(String operation, String result) {
+        counters.computeIfAbsent(List.of(operation, result), key -> Counter.builder("location.coalescer.requests")
+                        .description("Lookups by coalescing outcome")
+                        .tag("operation", operation)
+                        .tag("result", result)
+                        .register(meterRegistry))
+                .increment();
+    }
+}
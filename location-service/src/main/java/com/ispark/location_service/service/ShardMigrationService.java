@@ -0,0 +1,253 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.dto.CityPlacementDTO;
+import com.ispark.location_service.entity.City;
+import com.ispark.location_service.entity.CityMove;
+import com.ispark.location_service.entity.CityMove.State;
+import com.ispark.location_service.entity.District;
+import com.ispark.location_service.entity.LocationChange.ChangeType;
+import com.ispark.location_service.entity.Street;
+import com.ispark.location_service.exception.InvalidRequestException;
+import com.ispark.location_service.exception.ResourceNotFoundException;
+import com.ispark.location_service.repository.CityRepository;
+import com.ispark.location_service.sharding.ShardContext;
+import com.ispark.location_service.sharding.ShardExecutor;
+import com.ispark.location_service.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves a city with its districts and streets to another shard. The move is recorded in the
+ * placement directory before anything is copied and advanced after every step:
+ * <ol>
+ *     <li>COPYING: the source copy is marked and copied, replacing any partial copy on the target</li>
+ *     <li>COPIED: the city is pinned to the target shard in the placement directory</li>
+ *     <li>PLACED: the source copy is removed and the target copy unmarked, then the move row goes</li>
+ * </ol>
+ * Every step can be repeated, so an interrupted move is finished by requesting it again or by the
+ * next start of any instance. The move row fences the city on every instance while it exists.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "location.sharding", name = "enabled", havingValue = "true")
+public class ShardMigrationService implements ApplicationRunner {
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private LocationStatsService locationStatsService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Value("${location.sharding.resume-moves-on-startup:true}")
+    private boolean resumeMovesOnStartup;
+
+    public CityPlacementDTO moveCity(String cityCode, String targetShard) {
+        if (!shardRouter.getShardIds().contains(targetShard)) {
+            throw new InvalidRequestException("Unknown shard: " + targetShard);
+        }
+        Optional<CityMove> pending = shardRouter.findMove(cityCode);
+        if (pending.isPresent() && !pending.get().getTargetShard().equals(targetShard)) {
+            throw new IllegalArgumentException("City " + cityCode + " is already being moved to shard " + pending.get().getTargetShard());
+        }
+        resume(pending.isPresent() ? pending.get() : begin(cityCode, targetShard));
+        return findPlacement(cityCode);
+    }
+
+    public CityPlacementDTO findPlacement(String cityCode) {
+        return CityPlacementDTO.builder()
+                .cityCode(cityCode)
+                .shardId(shardRouter.shardFor(cityCode))
+                .pinned(shardRouter.getPlacements().containsKey(cityCode))
+                .build();
+    }
+
+    // Finishes moves that were interrupted by a crash or a restart
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!resumeMovesOnStartup) {
+            return;
+        }
+        for (CityMove move : shardRouter.findMoves()) {
+            log.info("Resuming move of city {} from shard {} to shard {} in state {}",
+                    move.getCityCode(), move.getSourceShard(), move.getTargetShard(), move.getState());
+            try {
+                resume(move);
+            } catch (RuntimeException e) {
+                log.warn("Could not resume move of city {}: {}", move.getCityCode(), e.getMessage());
+            }
+        }
+    }
+
+    private CityMove begin(String cityCode, String targetShard) {
+        String sourceShard = shardRouter.shardFor(cityCode);
+        if (sourceShard.equals(targetShard)) {
+            throw new InvalidRequestException("City " + cityCode + " is already on shard " + targetShard);
+        }
+        if (!ShardContext.callOn(sourceShard, () -> shardExecutor.readOnly(() -> cityRepository.findByCityCode(cityCode).isPresent()))) {
+            throw new ResourceNotFoundException("City not found with code: " + cityCode);
+        }
+        try {
+            return shardRouter.saveMove(CityMove.builder()
+                    .cityCode(cityCode)
+                    .sourceShard(sourceShard)
+                    .targetShard(targetShard)
+                    .state(State.COPYING)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("City " + cityCode + " is already being moved");
+        }
+    }
+
+    private void resume(CityMove move) {
+        String cityCode = move.getCityCode();
+        try {
+            // Claiming the move first makes any other mover of this city fail at its next step
+            move.setUpdatedAt(LocalDateTime.now());
+            move = shardRouter.saveMove(move);
+
+            if (move.getState() == State.COPYING) {
+                boolean copied;
+                try {
+                    copied = copy(move);
+                } catch (DataIntegrityViolationException | IllegalArgumentException e) {
+                    // The source still owns the city, so a move that conflicts with the target is dropped
+                    abort(move);
+                    throw new IllegalArgumentException("City " + cityCode + " conflicts with data on shard " + move.getTargetShard());
+                }
+                if (!copied) {
+                    shardRouter.deleteMove(move);
+                    throw new ResourceNotFoundException("City not found with code: " + cityCode);
+                }
+                move.setState(State.COPIED);
+                move = shardRouter.saveMove(move);
+            }
+            if (move.getState() == State.COPIED) {
+                shardRouter.place(cityCode, move.getTargetShard());
+                move.setState(State.PLACED);
+                move = shardRouter.saveMove(move);
+            }
+            finish(move);
+            shardRouter.deleteMove(move);
+            log.info("Moved city {} from shard {} to shard {}", cityCode, move.getSourceShard(), move.getTargetShard());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new IllegalArgumentException("City " + cityCode + " is being moved by another request");
+        }
+    }
+
+    // The exclusive lock waits for writes that got past the fence before the source was marked, and
+    // every later write sees the mark and is rejected. Returns false if the city no longer exists.
+    private boolean copy(CityMove move) {
+        String cityCode = move.getCityCode();
+        City copy = ShardContext.callOn(move.getSourceShard(), () -> shardExecutor.inTransaction(() ->
+                cityRepository.lockByCityCode(cityCode)
+                        .map(city -> {
+                            city.setMoving(true);
+                            return copyOf(city);
+                        })
+                        .orElse(null)));
+        if (copy == null) {
+            return false;
+        }
+
+        ShardContext.runOn(move.getTargetShard(), () -> shardExecutor.inTransaction(() -> {
+            cityRepository.lockByCityCode(cityCode).ifPresent(existing -> {
+                if (!Boolean.TRUE.equals(existing.getMoving())) {
+                    throw new IllegalArgumentException("City " + cityCode + " already exists on shard " + move.getTargetShard());
+                }
+                // Left behind by an interrupted copy, it has never accepted a write
+                locationStatsService.cityDeleted(existing);
+                cityRepository.delete(existing);
+                cityRepository.flush();
+            });
+            City saved = cityRepository.save(copy);
+            changeFeedService.recordCityTree(saved, cityCode, ChangeType.UPSERT);
+            locationStatsService.cityTreeCreated(saved);
+            return saved;
+        }));
+        return true;
+    }
+
+    private void finish(CityMove move) {
+        String cityCode = move.getCityCode();
+        ShardContext.runOn(move.getSourceShard(), () -> shardExecutor.inTransaction(() -> {
+            // No delete is recorded: the city lives on in the upserts of the target shard, and a
+            // consumer keyed by city code would drop it if the delete came last
+            cityRepository.findByCityCode(cityCode).ifPresent(city -> {
+                locationStatsService.cityDeleted(city);
+                cityRepository.delete(city);
+            });
+            return null;
+        }));
+        ShardContext.runOn(move.getTargetShard(), () -> shardExecutor.inTransaction(() -> {
+            cityRepository.lockByCityCode(cityCode).ifPresent(city -> city.setMoving(null));
+            return null;
+        }));
+    }
+
+    private void abort(CityMove move) {
+        ShardContext.runOn(move.getTargetShard(), () -> shardExecutor.inTransaction(() -> {
+            cityRepository.lockByCityCode(move.getCityCode())
+                    .filter(city -> Boolean.TRUE.equals(city.getMoving()))
+                    .ifPresent(city -> {
+                        locationStatsService.cityDeleted(city);
+                        cityRepository.delete(city);
+                    });
+            return null;
+        }));
+        ShardContext.runOn(move.getSourceShard(), () -> shardExecutor.inTransaction(() -> {
+            cityRepository.lockByCityCode(move.getCityCode()).ifPresent(city -> city.setMoving(null));
+            return null;
+        }));
+        shardRouter.deleteMove(move);
+        log.warn("Dropped move of city {} to shard {}", move.getCityCode(), move.getTargetShard());
+    }
+
+    // Ids are generated by the target shard, so only the business keys carry over
+    private City copyOf(City source) {
+        City city = City.builder()
+                .cityName(source.getCityName())
+                .cityCode(source.getCityCode())
+                .moving(true)
+                .districts(new ArrayList<>())
+                .build();
+        for (District sourceDistrict : source.getDistricts()) {
+            List<Street> streets = new ArrayList<>();
+            District district = District.builder()
+                    .districtCode(sourceDistrict.getDistrictCode())
+                    .districtName(sourceDistrict.getDistrictName())
+                    .city(city)
+                    .streets(streets)
+                    .build();
+            for (Street sourceStreet : sourceDistrict.getStreets()) {
+                streets.add(Street.builder()
+                        .streetCode(sourceStreet.getStreetCode())
+                        .streetName(sourceStreet.getStreetName())
+                        .district(district)
+                        .build());
+            }
+            city.getDistricts().add(district);
+        }
+        return city;
+    }
+}
@@ -0,0 +1,5 @@
+package com.ispark.location_service.sharding;
+
+public interface CityScoped {
+    String getCityCode();
+}
@@ -0,0 +1,49 @@
+package com.ispark.location_service.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard selected for the current thread. The routing data source reads it when a transaction
+ * acquires its connection, so it has to be set before the transaction starts.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T callOn(String shardId, Supplier<T> action) {
+        String previous = enter(shardId);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void runOn(String shardId, Runnable action) {
+        callOn(shardId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    static String enter(String shardId) {
+        String previous = CURRENT.get();
+        CURRENT.set(shardId);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ispark.location_service.sharding;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs an operation on every shard in parallel and gathers the results in shard order. Without
+ * sharding the operation simply runs once on the calling thread.
+ */
+@Component
+public class ShardExecutor {
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ExecutorService executor;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        if (shardRouter.isEnabled()) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(shardingProperties.getScatterThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public <T> Map<String, T> collect(Function<String, T> perShard) {
+        Map<String, T> results = new LinkedHashMap<>();
+        if (!shardRouter.isEnabled()) {
+            results.put(ShardRouter.DEFAULT_SHARD, perShard.apply(ShardRouter.DEFAULT_SHARD));
+            return results;
+        }
+
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (String shardId : shardRouter.getShardIds()) {
+            futures.put(shardId, executor.submit(() -> ShardContext.callOn(shardId, () -> perShard.apply(shardId))));
+        }
+        futures.forEach((shardId, future) -> results.put(shardId, await(shardId, future)));
+        return results;
+    }
+
+    public <T> List<T> scatter(Supplier<List<T>> perShard) {
+        List<T> results = new ArrayList<>();
+        collect(shardId -> perShard.get()).values().forEach(results::addAll);
+        return results;
+    }
+
+    public <T> List<T> scatterReadOnly(Supplier<List<T>> perShard) {
+        return scatter(() -> readOnly(perShard));
+    }
+
+    public <T> T readOnly(Supplier<T> action) {
+        return readOnlyTransaction.execute(status -> action.get());
+    }
+
+    public <T> T inTransaction(Supplier<T> action) {
+        return writeTransaction.execute(status -> action.get());
+    }
+
+    private <T> T await(String shardId, Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard " + shardId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Operation failed on shard " + shardId, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.ispark.location_service.sharding;
+
+import com.ispark.location_service.entity.CityMove;
+import com.ispark.location_service.entity.CityNameClaim;
+import com.ispark.location_service.entity.CityPlacement;
+import com.ispark.location_service.repository.CityMoveRepository;
+import com.ispark.location_service.repository.CityNameClaimRepository;
+import com.ispark.location_service.repository.CityPlacementRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which shard owns a city. Cities are placed on the consistent hash ring unless the
+ * placement directory pins them to a shard, which happens when a city is moved or renamed.
+ */
+@Component
+public class ShardRouter {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private CityPlacementRepository cityPlacementRepository;
+
+    @Autowired
+    private CityMoveRepository cityMoveRepository;
+
+    @Autowired
+    private CityNameClaimRepository cityNameClaimRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ConsistentHashRing ring;
+    private TransactionTemplate directoryTransaction;
+    private volatile Directory directory;
+
+    @PostConstruct
+    void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (shardingProperties.getShards().isEmpty()) {
+            throw new IllegalStateException("Sharding is enabled but no shards are configured");
+        }
+        ring = new ConsistentHashRing(shardingProperties.getShards().keySet(), shardingProperties.getVirtualNodes());
+        // Directory access must never join a transaction that is bound to another shard
+        directoryTransaction = new TransactionTemplate(transactionManager);
+        directoryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isEnabled() {
+        return shardingProperties.isEnabled();
+    }
+
+    public List<String> getShardIds() {
+        return isEnabled() ? List.copyOf(shardingProperties.getShards().keySet()) : List.of(DEFAULT_SHARD);
+    }
+
+    public String getDirectoryShard() {
+        return shardingProperties.getDirectoryShard();
+    }
+
+    public String shardFor(String cityCode) {
+        String placed = directory().placements.get(cityCode);
+        return placed != null ? placed : ring.nodeFor(cityCode);
+    }
+
+    public Map<String, String> getPlacements() {
+        return Map.copyOf(directory().placements);
+    }
+
+    public void place(String cityCode, String shardId) {
+        onDirectory(() -> cityPlacementRepository.save(CityPlacement.builder()
+                .cityCode(cityCode)
+                .shardId(shardId)
+                .build()));
+        Directory current = directory();
+        Map<String, String> placements = new HashMap<>(current.placements);
+        placements.put(cityCode, shardId);
+        directory = new Directory(placements, current.moves);
+    }
+
+    @Scheduled(fixedDelayString = "${location.sharding.placement-refresh-ms:10000}")
+    public void refreshPlacements() {
+        if (isEnabled()) {
+            directory = loadDirectory();
+        }
+    }
+
+    // A city is owned by exactly one shard, but while it is moved a copy also exists on the other one
+
+    public boolean isOwnedByCurrentShard(String cityCode) {
+        return !isEnabled() || shardFor(cityCode).equals(ShardContext.current());
+    }
+
+    public Set<String> findForeignCities(String shardId) {
+        if (!isEnabled()) {
+            return Set.of();
+        }
+        return directory().moves.values().stream()
+                .filter(move -> move.getSourceShard().equals(shardId) || move.getTargetShard().equals(shardId))
+                .map(CityMove::getCityCode)
+                .filter(cityCode -> !shardFor(cityCode).equals(shardId))
+                .collect(Collectors.toSet());
+    }
+
+    // Moves in progress fence their city. The check uses this instance's view of the directory, which
+    // is refreshed with the placements; writes that were routed on an outdated view are rejected by
+    // the move marks on the city rows, see WriteFence.
+
+    public boolean isFenced(String cityCode) {
+        return isEnabled() && directory().moves.containsKey(cityCode);
+    }
+
+    public Optional<CityMove> findMove(String cityCode) {
+        return onDirectory(() -> cityMoveRepository.findById(cityCode));
+    }
+
+    public List<CityMove> findMoves() {
+        return onDirectory(cityMoveRepository::findAll);
+    }
+
+    public CityMove saveMove(CityMove move) {
+        CityMove saved = onDirectory(() -> cityMoveRepository.saveAndFlush(move));
+        Directory current = directory();
+        Map<String, CityMove> moves = new HashMap<>(current.moves);
+        moves.put(saved.getCityCode(), saved);
+        directory = new Directory(current.placements, moves);
+        return saved;
+    }
+
+    public void deleteMove(CityMove move) {
+        onDirectory(() -> {
+            cityMoveRepository.delete(move);
+            cityMoveRepository.flush();
+            return null;
+        });
+        Directory current = directory();
+        Map<String, CityMove> moves = new HashMap<>(current.moves);
+        moves.remove(move.getCityCode());
+        directory = new Directory(current.placements, moves);
+    }
+
+    // City names are unique across all shards. A create or rename claims the name here before it
+    // checks the shards, and releases it once its transaction has finished.
+
+    public String claimCityName(String cityName) {
+        String token = UUID.randomUUID().toString();
+        try {
+            onDirectory(() -> {
+                Optional<CityNameClaim> claim = cityNameClaimRepository.lockByCityName(cityName);
+                LocalDateTime now = LocalDateTime.now();
+                if (claim.isPresent() && claim.get().getClaimedAt().isAfter(now.minus(shardingProperties.getNameClaimTimeout()))) {
+                    throw new IllegalArgumentException("City with this name already exists");
+                }
+                CityNameClaim held = claim.orElseGet(() -> CityNameClaim.builder().cityName(cityName).build());
+                held.setToken(token);
+                held.setClaimedAt(now);
+                return cityNameClaimRepository.saveAndFlush(held);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another shard inserted the claim after the lookup found none
+            throw new IllegalArgumentException("City with this name already exists");
+        }
+        return token;
+    }
+
+    public void releaseCityName(String cityName, String token) {
+        onDirectory(() -> cityNameClaimRepository.release(cityName, token));
+    }
+
+    private Directory directory() {
+        Directory current = directory;
+        if (current == null) {
+            current = loadDirectory();
+            directory = current;
+        }
+        return current;
+    }
+
+    private Directory loadDirectory() {
+        return onDirectory(() -> {
+            Map<String, String> placements = new HashMap<>();
+            cityPlacementRepository.findAll().forEach(placement -> placements.put(placement.getCityCode(), placement.getShardId()));
+            Map<String, CityMove> moves = new HashMap<>();
+            cityMoveRepository.findAll().forEach(move -> moves.put(move.getCityCode(), move));
+            return new Directory(placements, moves);
+        });
+    }
+
+    private <T> T onDirectory(Supplier<T> action) {
+        return ShardContext.callOn(getDirectoryShard(), () -> directoryTransaction.execute(status -> action.get()));
+    }
+
+    private static class Directory {
+        private final Map<String, String> placements;
+        private final Map<String, CityMove> moves;
+
+        private Directory(Map<String, String> placements, Map<String, CityMove> moves) {
+            this.placements = placements;
+            this.moves = moves;
+        }
+    }
+}
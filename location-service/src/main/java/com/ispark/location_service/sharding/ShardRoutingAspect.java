@@ -0,0 +1,95 @@
+package com.ispark.location_service.sharding;
+
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Selects the shard for service calls that carry a {@link ShardKey}. Runs before the transaction
+ * interceptor so the transaction's connection comes from the selected shard. Writes to a city with a
+ * move in progress are turned away here already, the {@link WriteFence} catches the ones that were
+ * routed before this instance saw the move.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "location.sharding", name = "enabled", havingValue = "true")
+public class ShardRoutingAspect {
+
+    private static final int NO_SHARD_KEY = -1;
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final Map<Method, Integer> shardKeyIndexes = new ConcurrentHashMap<>();
+    private final Map<Method, Boolean> writeMethods = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Around("execution(public * com.ispark.location_service.service..*(..))")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        int index = shardKeyIndexes.computeIfAbsent(method, ShardRoutingAspect::findShardKey);
+        if (index == NO_SHARD_KEY) {
+            return joinPoint.proceed();
+        }
+
+        Object key = joinPoint.getArgs()[index];
+        String cityCode = key instanceof CityScoped cityScoped ? cityScoped.getCityCode() : (String) key;
+        if (cityCode == null) {
+            return joinPoint.proceed();
+        }
+        if (writeMethods.computeIfAbsent(method, ShardRoutingAspect::isWrite) && shardRouter.isFenced(cityCode)) {
+            throw new ServiceUnavailableException("City " + cityCode + " is being moved to another shard", RETRY_AFTER_SECONDS);
+        }
+
+        String shardId = shardRouter.shardFor(cityCode);
+        String current = ShardContext.current();
+        if (current != null) {
+            if (!current.equals(shardId)) {
+                throw new IllegalStateException("Cannot access city " + cityCode + " on shard " + shardId + " from shard " + current);
+            }
+            return joinPoint.proceed();
+        }
+        return proceedOn(shardId, joinPoint);
+    }
+
+    private Object proceedOn(String shardId, ProceedingJoinPoint joinPoint) throws Throwable {
+        String previous = ShardContext.enter(shardId);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private static boolean isWrite(Method method) {
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+        return transactional != null && !transactional.readOnly();
+    }
+
+    private static int findShardKey(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        return NO_SHARD_KEY;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ispark.location_service.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hibernate only manages the schema of the directory shard, which is the routing data source's
+ * default. This applies the same schema update to every other shard once the mapping is built.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "location.sharding", name = "enabled", havingValue = "true")
+public class ShardSchemaInitializer implements HibernatePropertiesCustomizer, Integrator, SmartInitializingSingleton {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Value("${spring.jpa.hibernate.ddl-auto:none}")
+    private String ddlAuto;
+
+    private volatile Metadata metadata;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(this));
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!"update".equals(ddlAuto) || metadata == null) {
+            return;
+        }
+        String dialect = metadata.getDatabase().getDialect().getClass().getName();
+        Map<Object, DataSource> shards = ((ShardRoutingDataSource) dataSource).getResolvedDataSources();
+        shards.forEach((shardId, shardDataSource) -> {
+            if (shardId.equals(shardingProperties.getDirectoryShard())) {
+                return;
+            }
+            Map<String, Object> settings = new HashMap<>();
+            settings.put(AvailableSettings.DATASOURCE, shardDataSource);
+            settings.put(AvailableSettings.DIALECT, dialect);
+            settings.put(AvailableSettings.HBM2DDL_AUTO, ddlAuto);
+            StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                    .applySettings(settings)
+                    .build();
+            try {
+                SchemaManagementToolCoordinator.process(metadata, registry, settings, action -> {
+                });
+                log.info("Updated schema of shard {}", shardId);
+            } finally {
+                StandardServiceRegistryBuilder.destroy(registry);
+            }
+        });
+    }
+}
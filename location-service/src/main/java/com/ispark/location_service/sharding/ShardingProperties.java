@@ -0,0 +1,43 @@
+package com.ispark.location_service.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "location.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+    private int virtualNodes = 128;
+    private int scatterThreads = 8;
+
+    // A city name claim older than this was left behind by a crashed instance and may be taken over
+    private Duration nameClaimTimeout = Duration.ofMinutes(5);
+
+    // Holds the city placement directory, defaults to the first configured shard
+    private String directoryShard;
+
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+    }
+
+    public String getDirectoryShard() {
+        if (directoryShard != null) {
+            return directoryShard;
+        }
+        return shards.isEmpty() ? null : shards.keySet().iterator().next();
+    }
+}
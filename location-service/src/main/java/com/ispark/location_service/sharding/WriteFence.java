@@ -0,0 +1,49 @@
+package com.ispark.location_service.sharding;
+
+import com.ispark.location_service.entity.City;
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import com.ispark.location_service.repository.CityRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Rejects writes to a city that is being moved between shards, whichever instance routed them. A
+ * move marks the city row on the source shard under an exclusive lock before copying it, and keeps
+ * the copy on the target marked until the move has finished. Writes lock the same row and check the
+ * mark first, so a write either commits before the copy reads the city or is rejected.
+ *
+ * <p>Must be called inside the write transaction, before the write touches anything else.
+ */
+@Component
+public class WriteFence {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    // Writes to the districts and streets of a city
+    public void checkChildWrite(String cityCode) {
+        if (shardRouter.isEnabled()) {
+            check(cityCode, cityRepository.lockSharedByCityCode(cityCode));
+        }
+    }
+
+    // Writes that change or delete the city row itself
+    public void checkCityWrite(String cityCode) {
+        if (shardRouter.isEnabled()) {
+            check(cityCode, cityRepository.lockByCityCode(cityCode));
+        }
+    }
+
+    private void check(String cityCode, Optional<City> city) {
+        if (city.isPresent() && Boolean.TRUE.equals(city.get().getMoving())) {
+            throw new ServiceUnavailableException("City " + cityCode + " is being moved to another shard", RETRY_AFTER_SECONDS);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.ispark.location_service.snapshot;
+
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import com.ispark.location_service.dto.StreetDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+
+import static com.ispark.location_service.snapshot.SnapshotFormat.*;
+
+/**
+ * Read-only view of a snapshot file mapped into memory. Records are decoded on demand straight
+ * from the mapping with absolute reads, so lookups are safe from any thread and the data stays
+ * off-heap in the page cache shared by every process that maps the same file.
+ */
+public final class MappedSnapshot {
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int cityCount;
+    private final int districtCount;
+    private final int streetCount;
+    private final int stringCount;
+    private final int stringOffsets;
+    private final int stringData;
+    private final int cityTable;
+    private final int districtTable;
+    private final int streetTable;
+
+    private MappedSnapshot(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("File is too small to be a location snapshot");
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(MAGIC_OFFSET, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("File is not a location snapshot");
+        }
+        int version = buffer.getInt(VERSION_OFFSET);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + version);
+        }
+        cityCount = buffer.getInt(CITY_COUNT_OFFSET);
+        districtCount = buffer.getInt(DISTRICT_COUNT_OFFSET);
+        streetCount = buffer.getInt(STREET_COUNT_OFFSET);
+        stringCount = buffer.getInt(STRING_COUNT_OFFSET);
+        stringOffsets = section(STRING_OFFSETS_OFFSET);
+        stringData = section(STRING_DATA_OFFSET);
+        cityTable = section(CITY_TABLE_OFFSET);
+        districtTable = section(DISTRICT_TABLE_OFFSET);
+        streetTable = section(STREET_TABLE_OFFSET);
+        long expectedSize = (long) streetTable + (long) STREET_RECORD_SIZE * streetCount + CHECKSUM_SIZE;
+        if (expectedSize != buffer.capacity()) {
+            throw new IOException("Snapshot is truncated or has trailing data");
+        }
+    }
+
+    public static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot of " + channel.size() + " bytes exceeds the mappable size");
+            }
+            return new MappedSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Validation reads the whole file, unlike open which only checks the header
+
+    public static SnapshotInfoDTO validate(Path path) {
+        try {
+            return open(path).verify();
+        } catch (IOException | RuntimeException e) {
+            return SnapshotInfoDTO.builder()
+                    .path(path.toString())
+                    .valid(false)
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
+
+    public SnapshotInfoDTO verify() {
+        SnapshotInfoDTO.SnapshotInfoDTOBuilder info = describe();
+        String error = checkChecksum();
+        if (error == null) {
+            error = checkStructure();
+        }
+        return info.valid(error == null).error(error).build();
+    }
+
+    public SnapshotInfoDTO getInfo() {
+        return describe().valid(true).build();
+    }
+
+    public String getCursor() {
+        return string(buffer.getInt(CURSOR_STRING_OFFSET));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Lookups
+
+    public CityDTO findCity(String cityCode, boolean withDistricts) {
+        int city = findCityIndex(cityCode);
+        return city < 0 ? null : city(city, withDistricts);
+    }
+
+    public List<String> findDistrictCodes(String cityCode) {
+        List<String> codes = new ArrayList<>();
+        int city = findCityIndex(cityCode);
+        if (city >= 0) {
+            int record = cityRecord(city);
+            int first = buffer.getInt(record + 20);
+            for (int district = first; district < first + buffer.getInt(record + 24); district++) {
+                codes.add(string(buffer.getInt(districtRecord(district) + 12)));
+            }
+        }
+        return codes;
+    }
+
+    public DistrictDTO findDistrict(String cityCode, String districtCode) {
+        int city = findCityIndex(cityCode);
+        int district = city < 0 ? -1 : findDistrictIndex(city, districtCode);
+        return district < 0 ? null : district(district, cityCode, true);
+    }
+
+    public StreetDTO findStreet(String cityCode, String districtCode, String streetCode) {
+        int city = findCityIndex(cityCode);
+        int district = city < 0 ? -1 : findDistrictIndex(city, districtCode);
+        int street = district < 0 ? -1 : findStreetIndex(district, streetCode);
+        return street < 0 ? null : street(street, cityCode, districtCode);
+    }
+
+    public String findShard(String cityCode) {
+        int city = findCityIndex(cityCode);
+        return city < 0 ? null : string(buffer.getInt(cityRecord(city) + 16));
+    }
+
+    private CityDTO city(int city, boolean withDistricts) {
+        int record = cityRecord(city);
+        String cityCode = string(buffer.getInt(record + 8));
+        List<DistrictDTO> districts = null;
+        if (withDistricts) {
+            districts = new ArrayList<>();
+            int first = buffer.getInt(record + 20);
+            for (int district = first; district < first + buffer.getInt(record + 24); district++) {
+                districts.add(district(district, cityCode, true));
+            }
+        }
+        return CityDTO.builder()
+                .cityId(buffer.getLong(record))
+                .cityCode(cityCode)
+                .cityName(string(buffer.getInt(record + 12)))
+                .districts(districts)
+                .build();
+    }
+
+    private DistrictDTO district(int district, String cityCode, boolean withStreets) {
+        int record = districtRecord(district);
+        String districtCode = string(buffer.getInt(record + 12));
+        List<StreetDTO> streets = null;
+        if (withStreets) {
+            streets = new ArrayList<>();
+            int first = buffer.getInt(record + 20);
+            for (int street = first; street < first + buffer.getInt(record + 24); street++) {
+                streets.add(street(street, cityCode, districtCode));
+            }
+        }
+        return DistrictDTO.builder()
+                .districtId(buffer.getLong(record))
+                .districtCode(districtCode)
+                .districtName(string(buffer.getInt(record + 16)))
+                .cityCode(cityCode)
+                .streets(streets)
+                .build();
+    }
+
+    private StreetDTO street(int street, String cityCode, String districtCode) {
+        int record = streetRecord(street);
+        return StreetDTO.builder()
+                .streetId(buffer.getLong(record))
+                .streetCode(string(buffer.getInt(record + 12)))
+                .streetName(string(buffer.getInt(record + 16)))
+                .districtCode(districtCode)
+                .cityCode(cityCode)
+                .build();
+    }
+
+    // Binary search over the sorted records, each level within its parent's range
+
+    private int findCityIndex(String cityCode) {
+        return search(0, cityCount, cityCode, index -> buffer.getInt(cityRecord(index) + 8));
+    }
+
+    private int findDistrictIndex(int city, String districtCode) {
+        int record = cityRecord(city);
+        int first = buffer.getInt(record + 20);
+        return search(first, first + buffer.getInt(record + 24), districtCode, index -> buffer.getInt(districtRecord(index) + 12));
+    }
+
+    private int findStreetIndex(int district, String streetCode) {
+        int record = districtRecord(district);
+        int first = buffer.getInt(record + 20);
+        return search(first, first + buffer.getInt(record + 24), streetCode, index -> buffer.getInt(streetRecord(index) + 12));
+    }
+
+    private int search(int from, int to, String code, IntUnaryOperator codeString) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = string(codeString.applyAsInt(middle)).compareTo(code);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int cityRecord(int city) {
+        return cityTable + city * CITY_RECORD_SIZE;
+    }
+
+    private int districtRecord(int district) {
+        return districtTable + district * DISTRICT_RECORD_SIZE;
+    }
+
+    private int streetRecord(int street) {
+        return streetTable + street * STREET_RECORD_SIZE;
+    }
+
+    private String string(int index) {
+        int start = buffer.getInt(stringOffsets + index * 4);
+        int end = buffer.getInt(stringOffsets + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringData + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int section(int headerOffset) throws IOException {
+        long offset = buffer.getLong(headerOffset);
+        if (offset < HEADER_SIZE || offset > buffer.capacity()) {
+            throw new IOException("Snapshot header points outside the file");
+        }
+        return (int) offset;
+    }
+
+    private SnapshotInfoDTO.SnapshotInfoDTOBuilder describe() {
+        return SnapshotInfoDTO.builder()
+                .path(path.toString())
+                .formatVersion(FORMAT_VERSION)
+                .createdAt(Instant.ofEpochMilli(buffer.getLong(CREATED_AT_OFFSET)))
+                .cursor(getCursor())
+                .cities(cityCount)
+                .districts(districtCount)
+                .streets(streetCount)
+                .sizeBytes((long) buffer.capacity())
+                .checksum(Long.toHexString(buffer.getLong(buffer.capacity() - CHECKSUM_SIZE)));
+    }
+
+    private String checkChecksum() {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(buffer.capacity() - CHECKSUM_SIZE);
+        crc.update(content);
+        return crc.getValue() == buffer.getLong(buffer.capacity() - CHECKSUM_SIZE) ? null : "Checksum mismatch";
+    }
+
+    private String checkStructure() {
+        int padding = cityTable - stringData - buffer.getInt(stringOffsets + stringCount * 4);
+        if (padding < 0 || padding >= 8) {
+            return "String table does not match its offsets";
+        }
+        // Lookups binary search every level, so codes have to be sorted within each parent as well
+        int nextDistrict = 0;
+        String previousCity = null;
+        for (int city = 0; city < cityCount; city++) {
+            int record = cityRecord(city);
+            String code = string(buffer.getInt(record + 8));
+            if (previousCity != null && previousCity.compareTo(code) >= 0) {
+                return "Cities are not sorted at " + code;
+            }
+            if (buffer.getInt(record + 20) != nextDistrict) {
+                return "District range of city " + code + " is out of sequence";
+            }
+            nextDistrict += buffer.getInt(record + 24);
+            if (nextDistrict > districtCount) {
+                return "District range of city " + code + " exceeds the district table";
+            }
+            String previousDistrict = null;
+            for (int district = buffer.getInt(record + 20); district < nextDistrict; district++) {
+                int districtRecord = districtRecord(district);
+                String districtCode = string(buffer.getInt(districtRecord + 12));
+                if (buffer.getInt(districtRecord + 8) != city) {
+                    return "District " + districtCode + " does not belong to city " + code;
+                }
+                if (previousDistrict != null && previousDistrict.compareTo(districtCode) >= 0) {
+                    return "Districts of city " + code + " are not sorted at " + districtCode;
+                }
+                previousDistrict = districtCode;
+            }
+            previousCity = code;
+        }
+        if (nextDistrict != districtCount) {
+            return "Cities do not cover all districts";
+        }
+        int nextStreet = 0;
+        for (int district = 0; district < districtCount; district++) {
+            int record = districtRecord(district);
+            if (buffer.getInt(record + 20) != nextStreet) {
+                return "Street range of district " + district + " is out of sequence";
+            }
+            nextStreet += buffer.getInt(record + 24);
+            if (nextStreet > streetCount) {
+                return "Street range of district " + district + " exceeds the street table";
+            }
+            String previousStreet = null;
+            for (int street = buffer.getInt(record + 20); street < nextStreet; street++) {
+                int streetRecord = streetRecord(street);
+                String streetCode = string(buffer.getInt(streetRecord + 12));
+                if (buffer.getInt(streetRecord + 8) != district) {
+                    return "Street " + streetCode + " does not belong to district " + district;
+                }
+                if (previousStreet != null && previousStreet.compareTo(streetCode) >= 0) {
+                    return "Streets of district " + district + " are not sorted at " + streetCode;
+                }
+                previousStreet = streetCode;
+            }
+        }
+        return nextStreet == streetCount ? null : "Districts do not cover all streets";
+    }
+}
@@ -0,0 +1,81 @@
+package com.ispark.location_service.snapshot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Command line mode of the application. {@code --snapshot-export=<file>} starts the application
+ * without the web server, scheduled tasks and startup runners, writes a snapshot and exits.
+ * {@code --snapshot-validate=<file>} checks a snapshot file without starting the application at all.
+ * Both print the snapshot info as one line of JSON and exit with 1 if the snapshot is invalid.
+ */
+public final class SnapshotCommand {
+
+    private static final String EXPORT_OPTION = "--snapshot-export=";
+    private static final String VALIDATE_OPTION = "--snapshot-validate=";
+
+    // Validation runs without the application context, so the output does not use its ObjectMapper
+    private static final ObjectMapper OUTPUT = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    // The export only reads the database, nothing that runs on startup or on a schedule is needed
+    private static final String[] EXPORT_OVERRIDES = {
+            "--location.scheduling.enabled=false",
+            "--location.warmup.enabled=false",
+            "--location.snapshot.load-on-startup=false",
+            "--location.sharding.resume-moves-on-startup=false"
+    };
+
+    private SnapshotCommand() {
+    }
+
+    public static boolean isRequested(String[] args) {
+        return option(args, EXPORT_OPTION).isPresent() || option(args, VALIDATE_OPTION).isPresent();
+    }
+
+    public static int run(Class<?> application, String[] args) {
+        Optional<String> validate = option(args, VALIDATE_OPTION);
+        if (validate.isPresent()) {
+            return report(MappedSnapshot.validate(Path.of(validate.get())));
+        }
+
+        Path path = Path.of(option(args, EXPORT_OPTION).orElseThrow());
+        String[] applicationArgs = Stream.concat(Arrays.stream(args), Stream.of(EXPORT_OVERRIDES))
+                .toArray(String[]::new);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(application)
+                .web(WebApplicationType.NONE)
+                .run(applicationArgs)) {
+            return report(context.getBean(SnapshotService.class).export(path));
+        }
+    }
+
+    private static int report(SnapshotInfoDTO info) {
+        try {
+            System.out.println(OUTPUT.writeValueAsString(info));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write snapshot info", e);
+        }
+        return info.isValid() ? 0 : 1;
+    }
+
+    private static Optional<String> option(String[] args, String prefix) {
+        return Arrays.stream(args)
+                .filter(arg -> arg.startsWith(prefix))
+                .map(arg -> arg.substring(prefix.length()))
+                .findFirst();
+    }
+}
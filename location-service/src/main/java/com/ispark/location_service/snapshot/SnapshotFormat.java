@@ -0,0 +1,52 @@
+package com.ispark.location_service.snapshot;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a location snapshot file. All numbers are big-endian.
+ *
+ * <pre>
+ * header          80 bytes, see the offsets below
+ * string offsets  (stringCount + 1) ints, relative to the start of the string data
+ * string data     UTF-8 bytes of every distinct string, padded to 8 bytes
+ * cities          fixed size records sorted by city code
+ * districts       fixed size records grouped by city and sorted by district code
+ * streets         fixed size records grouped by district and sorted by street code
+ * checksum        CRC32 of everything before it, as a long
+ * </pre>
+ *
+ * Records refer to strings, parents and the first of their children by index, so any record can be
+ * read in place by offset and codes can be binary searched without decoding the file.
+ */
+final class SnapshotFormat {
+
+    static final byte[] MAGIC = "LOCSNAPS".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 80;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int CITY_COUNT_OFFSET = 12;
+    static final int DISTRICT_COUNT_OFFSET = 16;
+    static final int STREET_COUNT_OFFSET = 20;
+    static final int STRING_COUNT_OFFSET = 24;
+    static final int CURSOR_STRING_OFFSET = 28;
+    static final int CREATED_AT_OFFSET = 32;
+    static final int STRING_OFFSETS_OFFSET = 40;
+    static final int STRING_DATA_OFFSET = 48;
+    static final int CITY_TABLE_OFFSET = 56;
+    static final int DISTRICT_TABLE_OFFSET = 64;
+    static final int STREET_TABLE_OFFSET = 72;
+
+    // city: id, code, name, shard, first district, district count
+    static final int CITY_RECORD_SIZE = 28;
+    // district: id, city, code, name, first street, street count
+    static final int DISTRICT_RECORD_SIZE = 28;
+    // street: id, district, code, name
+    static final int STREET_RECORD_SIZE = 20;
+
+    static final int CHECKSUM_SIZE = 8;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,298 @@
+package com.ispark.location_service.snapshot;
+
+import com.ispark.location_service.dto.ChangeFeedDTO;
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.LocationChangeDTO;
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import com.ispark.location_service.dto.SnapshotStatusDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.entity.LocationChange.ChangeType;
+import com.ispark.location_service.service.ChangeFeedService;
+import com.ispark.location_service.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Serves city, district and street lookups from a memory-mapped snapshot. Changes made after the
+ * snapshot are kept in an overlay that is filled from the change feed, starting at the snapshot
+ * cursor, and from this instance's own writes as they commit. When the feed reports that the
+ * cursor has been compacted away the read model stops serving until a newer snapshot is loaded.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SnapshotReadModel implements ApplicationRunner {
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Value("${location.snapshot.load-on-startup:false}")
+    private boolean loadOnStartup;
+
+    @Value("${location.snapshot.serve-lookups:false}")
+    private boolean serveLookups;
+
+    @Value("${location.snapshot.catch-up-limit:1000}")
+    private int catchUpLimit;
+
+    private volatile State state;
+
+    // Loading runs before warm-up, so a snapshot is in place before the instance reports ready
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!loadOnStartup) {
+            return;
+        }
+        try {
+            load(snapshotService.getConfiguredPath());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load location snapshot, lookups are served from the database: {}", e.getMessage());
+        }
+    }
+
+    public synchronized SnapshotInfoDTO load(Path path) throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(path);
+        SnapshotInfoDTO info = snapshot.verify();
+        if (!info.isValid()) {
+            throw new IOException("Snapshot " + path + " is invalid: " + info.getError());
+        }
+        State loaded = new State(snapshot);
+        catchUp(loaded);
+        state = loaded;
+        log.info("Loaded location snapshot {} at cursor {}, caught up to {}", path, info.getCursor(), loaded.cursor);
+        return info;
+    }
+
+    public boolean isServing() {
+        State current = state;
+        return serveLookups && current != null && !current.stale;
+    }
+
+    public SnapshotStatusDTO getStatus() {
+        State current = state;
+        if (current == null) {
+            return SnapshotStatusDTO.builder().loaded(false).serving(false).build();
+        }
+        return SnapshotStatusDTO.builder()
+                .loaded(true)
+                .serving(isServing())
+                .stale(current.stale)
+                .cursor(current.cursor)
+                .overlayEntries(current.overlay.size())
+                .snapshot(current.snapshot.getInfo())
+                .build();
+    }
+
+    // Catching up
+
+    @Scheduled(fixedDelayString = "${location.snapshot.catch-up-interval-ms:5000}")
+    public synchronized void catchUp() {
+        State current = state;
+        if (current != null && !current.stale) {
+            catchUp(current);
+        }
+    }
+
+    private void catchUp(State target) {
+        try {
+            while (true) {
+                ChangeFeedDTO page = changeFeedService.findChanges(target.cursor, 0, catchUpLimit);
+                if (page.isResyncRequired()) {
+                    target.stale = true;
+                    log.warn("Snapshot cursor {} has been compacted away, a newer snapshot is required", target.cursor);
+                    return;
+                }
+                page.getChanges().forEach(change -> apply(target, change));
+                target.cursor = page.getCursor() != null ? page.getCursor() : String.valueOf(page.getNextSince());
+                if (!page.isHasMore() || page.getChanges().isEmpty()) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not catch up location snapshot from cursor {}: {}", target.cursor, e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onChange(LocationChangeDTO change) {
+        State current = state;
+        if (current != null) {
+            apply(current, change);
+        }
+    }
+
+    // A change is replayed from the feed after it was applied from the local commit, and the local
+    // commits of concurrent writers can arrive out of order. Versions only order the changes of one
+    // shard, so a change that is not newer than the entry from its own shard is ignored. Across shards
+    // upserts win and deletes do not: a moved city shows up as upserts on its new shard, while deletes
+    // recorded on its old shard before the move may still be replayed after them.
+    private void apply(State target, LocationChangeDTO change) {
+        String shard = change.getShard() != null ? change.getShard() : ShardRouter.DEFAULT_SHARD;
+        String key = switch (change.getEntityType()) {
+            case CITY -> key(change.getCityCode());
+            case DISTRICT -> key(change.getCityCode(), change.getDistrictCode());
+            case STREET -> key(change.getCityCode(), change.getDistrictCode(), change.getStreetCode());
+        };
+        boolean deleted = change.getChangeType() == ChangeType.DELETE;
+        Entry applied = new Entry(change.getEntityId(), change.getName(), shard, change.getVersion(), deleted);
+        target.overlay.compute(key, (ignored, existing) -> {
+            if (existing == null) {
+                String owner = deleted ? target.snapshot.findShard(change.getCityCode()) : shard;
+                return owner == null || owner.equals(shard) ? applied : null;
+            }
+            if (existing.shard.equals(shard)) {
+                return applied.version > existing.version ? applied : existing;
+            }
+            return deleted ? existing : applied;
+        });
+    }
+
+    // Lookups
+
+    public Optional<CityDTO> findCity(String cityCode) {
+        State current = state;
+        String cityKey = key(cityCode);
+        Entry entry = current.overlay.get(cityKey);
+        CityDTO base = current.snapshot.findCity(cityCode, false);
+        if (entry != null && entry.deleted || entry == null && base == null) {
+            return Optional.empty();
+        }
+
+        // Districts of a city that was deleted and created again are tombstoned in the overlay
+        TreeSet<String> districtCodes = new TreeSet<>(current.snapshot.findDistrictCodes(cityCode));
+        children(current, cityKey).keySet().stream()
+                .filter(child -> child.indexOf(KEY_SEPARATOR) < 0)
+                .forEach(districtCodes::add);
+
+        List<DistrictDTO> districts = districtCodes.stream()
+                .map(districtCode -> findDistrict(current, cityCode, districtCode))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+        return Optional.of(CityDTO.builder()
+                .cityId(entry != null ? entry.id : base.getCityId())
+                .cityCode(cityCode)
+                .cityName(entry != null ? entry.name : base.getCityName())
+                .districts(districts)
+                .build());
+    }
+
+    public Optional<DistrictDTO> findDistrict(String cityCode, String districtCode) {
+        return findDistrict(state, cityCode, districtCode);
+    }
+
+    public Optional<StreetDTO> findStreet(String cityCode, String districtCode, String streetCode) {
+        State current = state;
+        Entry entry = current.overlay.get(key(cityCode, districtCode, streetCode));
+        if (entry == null) {
+            return Optional.ofNullable(current.snapshot.findStreet(cityCode, districtCode, streetCode));
+        }
+        return entry.deleted ? Optional.empty() : Optional.of(street(entry, cityCode, districtCode, streetCode));
+    }
+
+    private Optional<DistrictDTO> findDistrict(State current, String cityCode, String districtCode) {
+        String districtKey = key(cityCode, districtCode);
+        Entry entry = current.overlay.get(districtKey);
+        DistrictDTO base = current.snapshot.findDistrict(cityCode, districtCode);
+        if (entry != null && entry.deleted || entry == null && base == null) {
+            return Optional.empty();
+        }
+
+        Map<String, StreetDTO> streets = new TreeMap<>();
+        if (base != null) {
+            base.getStreets().forEach(street -> streets.put(street.getStreetCode(), street));
+        }
+        children(current, districtKey).forEach((streetCode, street) -> {
+            if (street.deleted) {
+                streets.remove(streetCode);
+            } else {
+                streets.put(streetCode, street(street, cityCode, districtCode, streetCode));
+            }
+        });
+        return Optional.of(DistrictDTO.builder()
+                .districtId(entry != null ? entry.id : base.getDistrictId())
+                .districtCode(districtCode)
+                .districtName(entry != null ? entry.name : base.getDistrictName())
+                .cityCode(cityCode)
+                .streets(streets.values().stream()
+                        .sorted(Comparator.comparing(StreetDTO::getStreetCode))
+                        .collect(Collectors.toList()))
+                .build());
+    }
+
+    // Overlay entries below a key, keyed by the rest of their key
+    private static Map<String, Entry> children(State current, String parentKey) {
+        String prefix = parentKey + KEY_SEPARATOR;
+        Map<String, Entry> children = new TreeMap<>();
+        current.overlay.subMap(prefix, prefix + Character.MAX_VALUE)
+                .forEach((key, entry) -> children.put(key.substring(prefix.length()), entry));
+        return children;
+    }
+
+    private static StreetDTO street(Entry entry, String cityCode, String districtCode, String streetCode) {
+        return StreetDTO.builder()
+                .streetId(entry.id)
+                .streetName(entry.name)
+                .streetCode(streetCode)
+                .districtCode(districtCode)
+                .cityCode(cityCode)
+                .build();
+    }
+
+    private static String key(String... codes) {
+        return String.join(String.valueOf(KEY_SEPARATOR), codes);
+    }
+
+    private static class State {
+        private final MappedSnapshot snapshot;
+        private final ConcurrentSkipListMap<String, Entry> overlay = new ConcurrentSkipListMap<>();
+        private volatile String cursor;
+        private volatile boolean stale;
+
+        private State(MappedSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.cursor = snapshot.getCursor();
+        }
+    }
+
+    private static class Entry {
+        private final Long id;
+        private final String name;
+        private final String shard;
+        private final long version;
+        private final boolean deleted;
+
+        private Entry(Long id, String name, String shard, long version, boolean deleted) {
+            this.id = id;
+            this.name = name;
+            this.shard = shard;
+            this.version = version;
+            this.deleted = deleted;
+        }
+    }
+}
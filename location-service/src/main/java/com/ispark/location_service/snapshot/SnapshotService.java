@@ -0,0 +1,170 @@
+package com.ispark.location_service.snapshot;
+
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.exception.InvalidRequestException;
+import com.ispark.location_service.repository.CityRepository;
+import com.ispark.location_service.repository.DistrictRepository;
+import com.ispark.location_service.repository.StreetRepository;
+import com.ispark.location_service.service.ChangeFeedService;
+import com.ispark.location_service.sharding.ShardExecutor;
+import com.ispark.location_service.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Exports the location hierarchy to a snapshot file. Each shard is read in one read-only
+ * transaction that first takes the latest committed change feed version. Versions are assigned in
+ * commit order, so replaying the feed from the snapshot cursor brings a loaded snapshot up to date
+ * without missing a change.
+ */
+@Slf4j
+@Component
+public class SnapshotService {
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private StreetRepository streetRepository;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Value("${location.snapshot.path:}")
+    private String configuredPath;
+
+    public Path getConfiguredPath() {
+        if (configuredPath == null || configuredPath.isBlank()) {
+            throw new InvalidRequestException("No snapshot path is configured, set location.snapshot.path");
+        }
+        return Path.of(configuredPath);
+    }
+
+    public SnapshotInfoDTO export(Path path) {
+        long createdAt = System.currentTimeMillis();
+        Map<String, ShardContent> contents = shardExecutor.collect(shardId -> shardExecutor.readOnly(this::readShard));
+
+        Map<String, CityDTO> cities = new TreeMap<>();
+        Map<String, String> cityShards = new HashMap<>();
+        Map<String, DistrictDTO> districts = new HashMap<>();
+        contents.forEach((shardId, content) -> {
+            for (Object[] row : content.cities) {
+                String cityCode = (String) row[1];
+                // A city caught in the middle of a move exists on two shards, keep the owning copy
+                if (cities.containsKey(cityCode) && !shardId.equals(shardRouter.shardFor(cityCode))) {
+                    continue;
+                }
+                cities.put(cityCode, CityDTO.builder()
+                        .cityId((Long) row[0])
+                        .cityCode(cityCode)
+                        .cityName((String) row[2])
+                        .districts(new ArrayList<>())
+                        .build());
+                cityShards.put(cityCode, shardId);
+            }
+        });
+        contents.forEach((shardId, content) -> {
+            for (Object[] row : content.districts) {
+                CityDTO city = cities.get((String) row[1]);
+                if (city == null || !shardId.equals(cityShards.get(city.getCityCode()))) {
+                    continue;
+                }
+                DistrictDTO district = DistrictDTO.builder()
+                        .districtId((Long) row[0])
+                        .cityCode(city.getCityCode())
+                        .districtCode((String) row[2])
+                        .districtName((String) row[3])
+                        .streets(new ArrayList<>())
+                        .build();
+                city.getDistricts().add(district);
+                districts.put(city.getCityCode() + KEY_SEPARATOR + district.getDistrictCode(), district);
+            }
+        });
+        contents.forEach((shardId, content) -> {
+            for (Object[] row : content.streets) {
+                DistrictDTO district = districts.get((String) row[1] + KEY_SEPARATOR + row[2]);
+                if (district == null || !shardId.equals(cityShards.get(district.getCityCode()))) {
+                    continue;
+                }
+                district.getStreets().add(StreetDTO.builder()
+                        .streetId((Long) row[0])
+                        .cityCode(district.getCityCode())
+                        .districtCode(district.getDistrictCode())
+                        .streetCode((String) row[3])
+                        .streetName((String) row[4])
+                        .build());
+            }
+        });
+        cities.values().forEach(city -> {
+            city.getDistricts().sort(Comparator.comparing(DistrictDTO::getDistrictCode));
+            city.getDistricts().forEach(district -> district.getStreets().sort(Comparator.comparing(StreetDTO::getStreetCode)));
+        });
+
+        try {
+            SnapshotWriter.write(path, cursor(contents), createdAt, new ArrayList<>(cities.values()), cityShards);
+            SnapshotInfoDTO info = MappedSnapshot.open(path).getInfo();
+            log.info("Exported snapshot of {} cities, {} districts and {} streets to {} at cursor {}",
+                    info.getCities(), info.getDistricts(), info.getStreets(), path, info.getCursor());
+            return info;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot to " + path, e);
+        }
+    }
+
+    public SnapshotInfoDTO validate(Path path) {
+        return MappedSnapshot.validate(path);
+    }
+
+    private ShardContent readShard() {
+        ShardContent content = new ShardContent();
+        content.version = changeFeedService.findLatestVersion();
+        content.cities = cityRepository.findAllForSnapshot();
+        content.districts = districtRepository.findAllForSnapshot();
+        content.streets = streetRepository.findAllForSnapshot();
+        return content;
+    }
+
+    // Same cursor format as the change feed: a plain version, or one version per shard
+    private String cursor(Map<String, ShardContent> contents) {
+        if (!shardRouter.isEnabled()) {
+            return String.valueOf(contents.get(ShardRouter.DEFAULT_SHARD).version);
+        }
+        return contents.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue().version)
+                .collect(Collectors.joining(","));
+    }
+
+    private static class ShardContent {
+        private long version;
+        private List<Object[]> cities;
+        private List<Object[]> districts;
+        private List<Object[]> streets;
+    }
+}
@@ -0,0 +1,170 @@
+package com.ispark.location_service.snapshot;
+
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.StreetDTO;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static com.ispark.location_service.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes a snapshot file from a city tree whose cities, districts and streets are already sorted
+ * by code. The file is written next to the target and moved into place, so readers never map a
+ * partially written snapshot.
+ */
+final class SnapshotWriter {
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+
+    private SnapshotWriter() {
+    }
+
+    static void write(Path path, String cursor, long createdAt, List<CityDTO> cities, Map<String, String> cityShards) throws IOException {
+        new SnapshotWriter().writeFile(path, cursor, createdAt, cities, cityShards);
+    }
+
+    private void writeFile(Path path, String cursor, long createdAt, List<CityDTO> cities, Map<String, String> cityShards) throws IOException {
+        int cursorString = intern(cursor);
+        int districtCount = 0;
+        int streetCount = 0;
+        for (CityDTO city : cities) {
+            intern(city.getCityCode());
+            intern(city.getCityName());
+            intern(cityShards.get(city.getCityCode()));
+            for (DistrictDTO district : city.getDistricts()) {
+                intern(district.getDistrictCode());
+                intern(district.getDistrictName());
+                districtCount++;
+                for (StreetDTO street : district.getStreets()) {
+                    intern(street.getStreetCode());
+                    intern(street.getStreetName());
+                    streetCount++;
+                }
+            }
+        }
+
+        long stringDataSize = strings.stream().mapToLong(bytes -> bytes.length).sum();
+        long stringOffsetsOffset = HEADER_SIZE;
+        long stringDataOffset = stringOffsetsOffset + 4L * (strings.size() + 1);
+        long padding = (8 - (stringDataOffset + stringDataSize) % 8) % 8;
+        long cityTableOffset = stringDataOffset + stringDataSize + padding;
+        long districtTableOffset = cityTableOffset + (long) CITY_RECORD_SIZE * cities.size();
+        long streetTableOffset = districtTableOffset + (long) DISTRICT_RECORD_SIZE * districtCount;
+        long fileSize = streetTableOffset + (long) STREET_RECORD_SIZE * streetCount + CHECKSUM_SIZE;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + fileSize + " bytes exceeds the mappable size");
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 checksum = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16), checksum))) {
+                out.write(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(cities.size());
+                out.writeInt(districtCount);
+                out.writeInt(streetCount);
+                out.writeInt(strings.size());
+                out.writeInt(cursorString);
+                out.writeLong(createdAt);
+                out.writeLong(stringOffsetsOffset);
+                out.writeLong(stringDataOffset);
+                out.writeLong(cityTableOffset);
+                out.writeLong(districtTableOffset);
+                out.writeLong(streetTableOffset);
+
+                int offset = 0;
+                for (byte[] bytes : strings) {
+                    out.writeInt(offset);
+                    offset += bytes.length;
+                }
+                out.writeInt(offset);
+                for (byte[] bytes : strings) {
+                    out.write(bytes);
+                }
+                out.write(new byte[(int) padding]);
+
+                writeRecords(out, cities, cityShards);
+                out.flush();
+                out.writeLong(checksum.getValue());
+            }
+            move(temporary, path);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeRecords(DataOutputStream out, List<CityDTO> cities, Map<String, String> cityShards) throws IOException {
+        int firstDistrict = 0;
+        for (CityDTO city : cities) {
+            out.writeLong(city.getCityId());
+            out.writeInt(stringIndexes.get(city.getCityCode()));
+            out.writeInt(stringIndexes.get(city.getCityName()));
+            out.writeInt(stringIndexes.get(cityShards.get(city.getCityCode())));
+            out.writeInt(firstDistrict);
+            out.writeInt(city.getDistricts().size());
+            firstDistrict += city.getDistricts().size();
+        }
+
+        int cityIndex = 0;
+        int firstStreet = 0;
+        for (CityDTO city : cities) {
+            for (DistrictDTO district : city.getDistricts()) {
+                out.writeLong(district.getDistrictId());
+                out.writeInt(cityIndex);
+                out.writeInt(stringIndexes.get(district.getDistrictCode()));
+                out.writeInt(stringIndexes.get(district.getDistrictName()));
+                out.writeInt(firstStreet);
+                out.writeInt(district.getStreets().size());
+                firstStreet += district.getStreets().size();
+            }
+            cityIndex++;
+        }
+
+        int districtIndex = 0;
+        for (CityDTO city : cities) {
+            for (DistrictDTO district : city.getDistricts()) {
+                for (StreetDTO street : district.getStreets()) {
+                    out.writeLong(street.getStreetId());
+                    out.writeInt(districtIndex);
+                    out.writeInt(stringIndexes.get(street.getStreetCode()));
+                    out.writeInt(stringIndexes.get(street.getStreetName()));
+                }
+                districtIndex++;
+            }
+        }
+    }
+
+    private int intern(String value) {
+        return stringIndexes.computeIfAbsent(value, key -> {
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
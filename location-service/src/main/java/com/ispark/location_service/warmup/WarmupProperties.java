@@ -0,0 +1,16 @@
+package com.ispark.location_service.warmup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "location.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+    private long maxDurationMs = 30000;
+    private int iterations = 100;
+    private int sampleCities = 10;
+}
@@ -0,0 +1,219 @@
+package com.ispark.location_service.warmup;
+
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.service.LocationService;
+import com.ispark.location_service.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms a freshly started instance before it takes traffic: fills the connection pools, loads the
+ * lookups of a sample of cities and replays those lookups through the HTTP stack until the JIT has
+ * seen them. Readiness only switches to ACCEPTING_TRAFFIC once all application runners are done,
+ * so the readiness probe stays down until warm-up has finished or used up its time budget.
+ */
+@Slf4j
+@Component
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final int CONNECTION_VALIDATION_SECONDS = 1;
+
+    @Autowired
+    private WarmupProperties warmupProperties;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong durationMillis = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private volatile double coverage;
+
+    @PostConstruct
+    void registerMetrics() {
+        TimeGauge.builder("location.warmup.duration", durationMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Time spent warming up before accepting traffic")
+                .register(meterRegistry);
+        FunctionCounter.builder("location.warmup.requests", requests, AtomicLong::get)
+                .description("Requests replayed through the HTTP stack during warm-up")
+                .register(meterRegistry);
+        FunctionCounter.builder("location.warmup.failures", failures, AtomicLong::get)
+                .description("Warm-up lookups and requests that failed")
+                .register(meterRegistry);
+        Gauge.builder("location.warmup.connections", connections, AtomicLong::get)
+                .description("Database connections opened during warm-up")
+                .register(meterRegistry);
+        Gauge.builder("location.warmup.coverage", this, runner -> runner.coverage)
+                .description("Share of sampled lookup endpoints that answered successfully during warm-up")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!warmupProperties.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + warmupProperties.getMaxDurationMs();
+
+        connections.set(primeConnectionPools(deadline));
+        Map<String, String> targets = preloadLookups();
+        replayRequests(targets, deadline);
+
+        durationMillis.set(System.currentTimeMillis() - start);
+        log.info("Warm-up finished in {} ms: {} connections, {} requests, {} failures, coverage {}",
+                durationMillis.get(), connections.get(), requests.get(), failures.get(), coverage);
+    }
+
+    // Hikari opens connections lazily in the background, so borrow up to the idle minimum at once
+
+    private long primeConnectionPools(long deadline) {
+        List<DataSource> pools = dataSource instanceof ShardRoutingDataSource routingDataSource
+                ? new ArrayList<>(routingDataSource.getResolvedDataSources().values())
+                : List.of(dataSource);
+        long opened = 0;
+        for (DataSource pool : pools) {
+            opened += primeConnectionPool(pool, deadline);
+        }
+        return opened;
+    }
+
+    private int primeConnectionPool(DataSource pool, long deadline) {
+        int size = pool instanceof HikariDataSource hikariDataSource ? hikariDataSource.getMinimumIdle() : 1;
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            while (borrowed.size() < size && System.currentTimeMillis() < deadline) {
+                Connection connection = pool.getConnection();
+                borrowed.add(connection);
+                connection.isValid(CONNECTION_VALIDATION_SECONDS);
+            }
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            log.warn("Could not prime connection pool: {}", e.getMessage());
+        } finally {
+            borrowed.forEach(this::close);
+        }
+        return borrowed.size();
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not return warm-up connection", e);
+        }
+    }
+
+    // Loads a sample of cities down to a single street and returns the matching request paths. Cities
+    // are only read as a column projection, the largest load replayed is one district with its streets.
+
+    private Map<String, String> preloadLookups() {
+        Map<String, String> targets = new LinkedHashMap<>();
+        targets.put("/api/cities?fields=cityCode,cityName", "cities");
+        List<String> cityCodes;
+        try {
+            cityCodes = locationService.findSampleCityCodes(warmupProperties.getSampleCities());
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.warn("Could not sample cities to preload: {}", e.getMessage());
+            return targets;
+        }
+        cityCodes.forEach(cityCode -> preloadCity(cityCode, targets));
+        return targets;
+    }
+
+    // A city that fails to load is skipped, the rest of the sample is still warmed
+    private void preloadCity(String cityCode, Map<String, String> targets) {
+        try {
+            preloadCityLookups(cityCode, targets);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.warn("Could not preload lookups of city {}: {}", cityCode, e.getMessage());
+        }
+    }
+
+    private void preloadCityLookups(String cityCode, Map<String, String> targets) {
+        List<DistrictDTO> districts = locationService.findDistrictsByCityCode(cityCode, null, null);
+        targets.put("/api/districts/city/" + cityCode, "districts");
+        targets.put("/api/districts/city/" + cityCode + "?include=streetCount", "districts-summary");
+        if (districts.isEmpty()) {
+            return;
+        }
+        String districtCode = districts.get(0).getDistrictCode();
+        locationService.findDistrictByCode(districtCode, cityCode);
+        targets.put("/api/districts/" + districtCode + "/city/" + cityCode, "district");
+        targets.put("/api/streets/district/" + districtCode + "/city/" + cityCode, "streets");
+
+        List<StreetDTO> streets = locationService.findStreetsByDistrictCode(districtCode, cityCode, null);
+        if (streets.isEmpty()) {
+            return;
+        }
+        String streetCode = streets.get(0).getStreetCode();
+        locationService.findStreetByCode(streetCode, districtCode, cityCode);
+        targets.put("/api/streets/" + streetCode + "/district/" + districtCode + "/city/" + cityCode, "street");
+    }
+
+    // Replays the sampled requests against this instance to exercise controllers and serialisation
+
+    private void replayRequests(Map<String, String> targets, long deadline) {
+        if (!(applicationContext instanceof WebServerApplicationContext webContext)) {
+            return;
+        }
+        RestClient client = RestClient.create("http://localhost:" + webContext.getWebServer().getPort());
+        Set<String> planned = new HashSet<>(targets.values());
+        Set<String> answered = new HashSet<>();
+        for (int i = 0; i < warmupProperties.getIterations(); i++) {
+            for (Map.Entry<String, String> target : targets.entrySet()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    log.warn("Warm-up stopped after {} ms, time budget exhausted", warmupProperties.getMaxDurationMs());
+                    coverage = (double) answered.size() / planned.size();
+                    return;
+                }
+                requests.incrementAndGet();
+                try {
+                    client.get().uri(target.getKey()).retrieve().toBodilessEntity();
+                    answered.add(target.getValue());
+                } catch (RestClientException e) {
+                    failures.incrementAndGet();
+                }
+            }
+        }
+        coverage = (double) answered.size() / planned.size();
+    }
+}
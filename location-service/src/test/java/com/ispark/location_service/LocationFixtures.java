@@ -0,0 +1,77 @@
+package com.ispark.location_service;
+
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.service.LocationService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates location data through LocationService for tests that share a database. City codes come
+ * from one counter so test classes never collide, and street codes, which are unique per database,
+ * are prefixed with their city code.
+ */
+public class LocationFixtures {
+
+    private static final AtomicInteger CITIES = new AtomicInteger();
+
+    private final LocationService locationService;
+
+    public LocationFixtures(LocationService locationService) {
+        this.locationService = locationService;
+    }
+
+    public static String newCityCode() {
+        return "city-" + CITIES.incrementAndGet();
+    }
+
+    public static String streetCode(String cityCode, int district, int street) {
+        return cityCode + "-d" + district + "-s" + street;
+    }
+
+    public String createCity() {
+        return createCity(0, 0);
+    }
+
+    // Districts d0, d1, ... each with streets coded by streetCode
+    public String createCity(int districts, int streetsPerDistrict) {
+        return createCity(newCityCode(), districts, streetsPerDistrict);
+    }
+
+    public String createCity(String cityCode, int districts, int streetsPerDistrict) {
+        locationService.createCity(CityDTO.builder().cityName(cityCode).cityCode(cityCode).build());
+        for (int d = 0; d < districts; d++) {
+            createDistrict(cityCode, "d" + d);
+            for (int s = 0; s < streetsPerDistrict; s++) {
+                createStreet(cityCode, "d" + d, streetCode(cityCode, d, s));
+            }
+        }
+        return cityCode;
+    }
+
+    public DistrictDTO createDistrict(String cityCode, String districtCode) {
+        return locationService.createDistrict(district(cityCode, districtCode));
+    }
+
+    public StreetDTO createStreet(String cityCode, String districtCode, String streetCode) {
+        return locationService.createStreet(street(cityCode, districtCode, streetCode));
+    }
+
+    public static DistrictDTO district(String cityCode, String districtCode) {
+        return DistrictDTO.builder()
+                .districtName("District " + districtCode)
+                .districtCode(districtCode)
+                .cityCode(cityCode)
+                .build();
+    }
+
+    public static StreetDTO street(String cityCode, String districtCode, String streetCode) {
+        return StreetDTO.builder()
+                .streetName("Street " + streetCode)
+                .streetCode(streetCode)
+                .districtCode(districtCode)
+                .cityCode(cityCode)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ispark.location_service.dto;
+
+import com.ispark.location_service.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FieldSelectionTest {
+
+    private static final List<String> FIELDS = List.of("districtId", "districtCode", "districtName", "cityCode");
+    private static final Set<String> INCLUDES = Set.of("streets", "streetCount");
+
+    @Test
+    void withoutParametersEveryFieldIsSelected() {
+        FieldSelection selection = FieldSelection.parse(null, " ", FIELDS, INCLUDES);
+
+        assertThat(selection.isExplicit()).isFalse();
+        assertThat(selection.getFields()).containsExactlyElementsOf(FIELDS);
+        assertThat(selection.getInclude()).isEmpty();
+    }
+
+    @Test
+    void selectedFieldsKeepTheirOrderAndIgnoreBlanks() {
+        FieldSelection selection = FieldSelection.parse("districtName, ,districtCode,districtName", "streetCount", FIELDS, INCLUDES);
+
+        assertThat(selection.isExplicit()).isTrue();
+        assertThat(selection.getFields()).containsExactly("districtName", "districtCode");
+        assertThat(selection.includes("streetCount")).isTrue();
+        assertThat(selection.includes("streets")).isFalse();
+    }
+
+    @Test
+    void includeAloneIsExplicit() {
+        FieldSelection selection = FieldSelection.parse(null, "streets", FIELDS, INCLUDES);
+
+        assertThat(selection.isExplicit()).isTrue();
+        assertThat(selection.getFields()).containsExactlyElementsOf(FIELDS);
+    }
+
+    @Test
+    void unknownNamesAreRejected() {
+        assertThatThrownBy(() -> FieldSelection.parse("districtCode,population", null, FIELDS, INCLUDES))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("Unknown field: population");
+        assertThatThrownBy(() -> FieldSelection.parse(null, "cities", FIELDS, INCLUDES))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("Unknown include: cities");
+    }
+
+    @Test
+    void keysMatchOnlyForTheSameSelection() {
+        FieldSelection selection = FieldSelection.parse("districtCode,districtName", "streets", FIELDS, INCLUDES);
+
+        assertThat(selection.key()).isEqualTo(FieldSelection.parse("districtCode,districtName", "streets", FIELDS, INCLUDES).key());
+        assertThat(selection.key()).isNotEqualTo(FieldSelection.parse("districtName,districtCode", "streets", FIELDS, INCLUDES).key());
+        assertThat(selection.key()).isNotEqualTo(FieldSelection.parse("districtCode,districtName", null, FIELDS, INCLUDES).key());
+    }
+}
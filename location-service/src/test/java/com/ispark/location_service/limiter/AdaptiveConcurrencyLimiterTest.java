@@ -0,0 +1,112 @@
+package com.ispark.location_service.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void rejectsRequestsAboveTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+        limiter.release(RTT, false);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void dropMultipliesTheLimitByTheBackoffRatio() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50, 10, 100);
+
+        limiter.tryAcquire();
+        limiter.release(RTT, true);
+
+        assertThat(limiter.getLimit()).isEqualTo(45);
+    }
+
+    @Test
+    void repeatedDropsStopAtTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 10, 100);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release(RTT, true);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void saturatedLimitGrowsWhileLatencyIsStable() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 10, 100);
+
+        for (int i = 0; i < 10; i++) {
+            saturate(limiter);
+            limiter.release(RTT, false);
+        }
+
+        // Every sample adds sqrt(limit), smoothed by 0.2
+        assertThat(limiter.getLimit()).isBetween(27, 40);
+    }
+
+    @Test
+    void growthStopsAtTheMaximum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 10, 30);
+
+        for (int i = 0; i < 100; i++) {
+            saturate(limiter);
+            limiter.release(RTT, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(30);
+    }
+
+    @Test
+    void limitDoesNotGrowWhileMostlyUnused() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50, 10, 100);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(RTT, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(50);
+        assertThat(limiter.getLongRttMillis()).isCloseTo(10.0, within(0.001));
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAboveTheTolerance() {
+        AdaptiveConcurrencyLimiter limiter = limiter(40, 10, 100);
+        saturate(limiter);
+        limiter.release(RTT, false);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            saturate(limiter);
+            limiter.release(RTT * 10, false);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(before);
+    }
+
+    // Fills the limiter so the next release counts as a sample taken under load
+    private void saturate(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) {
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("test", new LimiterProperties.Limit(initialLimit, minLimit, maxLimit), new LimiterProperties());
+    }
+}
@@ -0,0 +1,100 @@
+package com.ispark.location_service.limiter;
+
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitInterceptorTest {
+
+    private final AdaptiveConcurrencyLimiter readLimiter = limiter(1);
+    private final AdaptiveConcurrencyLimiter writeLimiter = limiter(1);
+    private final ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(readLimiter, writeLimiter, 3);
+
+    @Test
+    void readsAndWritesHaveSeparateLimits() {
+        assertThat(interceptor.preHandle(request("GET"), new MockHttpServletResponse(), null)).isTrue();
+        assertThat(interceptor.preHandle(request("POST"), new MockHttpServletResponse(), null)).isTrue();
+
+        assertThat(readLimiter.getInFlight()).isEqualTo(1);
+        assertThat(writeLimiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsWithRetryAfterWhenTheLimitIsReached() {
+        interceptor.preHandle(request("GET"), new MockHttpServletResponse(), null);
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("GET"), new MockHttpServletResponse(), null))
+                .isInstanceOfSatisfying(ServiceUnavailableException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(3));
+    }
+
+    @Test
+    void completionReleasesThePermitOnce() {
+        MockHttpServletRequest request = request("PUT");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+
+        interceptor.afterCompletion(request, response, null, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertThat(writeLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void serverErrorsCountAsDrops() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50);
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(limiter, limiter, 1);
+        MockHttpServletRequest request = request("GET");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+
+        response.setStatus(500);
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertThat(limiter.getLimit()).isEqualTo(45);
+    }
+
+    @Test
+    void serviceUnavailableRaisedByTheServiceIsNotADrop() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50);
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(limiter, limiter, 1);
+        MockHttpServletRequest handled = request("GET");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(handled, response, null);
+        MockHttpServletRequest unhandled = request("GET");
+        interceptor.preHandle(unhandled, new MockHttpServletResponse(), null);
+
+        handled.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE, new ServiceUnavailableException("Timed out", 1));
+        response.setStatus(503);
+        interceptor.afterCompletion(handled, response, null, null);
+        interceptor.afterCompletion(unhandled, new MockHttpServletResponse(), null, new ServiceUnavailableException("Timed out", 1));
+
+        assertThat(limiter.getLimit()).isEqualTo(50);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void otherFailuresStillCountAsDrops() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50);
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(limiter, limiter, 1);
+        MockHttpServletRequest request = request("GET");
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, new IllegalStateException("Connection is not available"));
+
+        assertThat(limiter.getLimit()).isEqualTo(45);
+    }
+
+    private MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/api/cities");
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int limit) {
+        return new AdaptiveConcurrencyLimiter("test", new LimiterProperties.Limit(limit, 1, 100), new LimiterProperties());
+    }
+}
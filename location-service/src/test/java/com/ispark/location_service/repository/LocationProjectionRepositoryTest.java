@@ -0,0 +1,120 @@
+package com.ispark.location_service.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.FieldSelection;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.service.LocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class LocationProjectionRepositoryTest {
+
+    @Autowired
+    private LocationProjectionRepository locationProjectionRepository;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String cityCode;
+
+    @BeforeEach
+    void createCity() {
+        LocationFixtures fixtures = new LocationFixtures(locationService);
+        cityCode = fixtures.createCity(2, 1);
+        fixtures.createStreet(cityCode, "d1", LocationFixtures.streetCode(cityCode, 1, 1));
+    }
+
+    @Test
+    void onlySelectedFieldsAreFilled() {
+        List<DistrictDTO> districts = locationProjectionRepository.findDistricts(cityCode,
+                districtSelection("districtCode", null), Set.of());
+
+        assertThat(districts).extracting(DistrictDTO::getDistrictCode).containsExactly("d0", "d1");
+        assertThat(districts).allSatisfy(district -> {
+            assertThat(district.getDistrictId()).isNull();
+            assertThat(district.getDistrictName()).isNull();
+            assertThat(district.getStreets()).isNull();
+            assertThat(district.getStreetCount()).isNull();
+        });
+    }
+
+    @Test
+    void streetCountIsCountedWithoutLoadingStreets() {
+        List<DistrictDTO> districts = locationProjectionRepository.findDistricts(cityCode,
+                districtSelection("districtCode", "streetCount"), Set.of());
+
+        assertThat(districts).extracting(DistrictDTO::getStreetCount).containsExactly(1L, 2L);
+        assertThat(districts).allSatisfy(district -> assertThat(district.getStreets()).isNull());
+    }
+
+    @Test
+    void streetsAreExpandedPerDistrict() {
+        List<DistrictDTO> districts = locationProjectionRepository.findDistricts(cityCode,
+                districtSelection("districtCode", "streets"), Set.of());
+
+        assertThat(districts.get(0).getStreets()).extracting(StreetDTO::getStreetCode).containsExactly(LocationFixtures.streetCode(cityCode, 0, 0));
+        assertThat(districts.get(1).getStreets()).extracting(StreetDTO::getStreetCode)
+                .containsExactly(LocationFixtures.streetCode(cityCode, 1, 0), LocationFixtures.streetCode(cityCode, 1, 1));
+    }
+
+    @Test
+    void citiesIncludeTheirDistricts() {
+        FieldSelection selection = FieldSelection.parse("cityCode", "districts",
+                LocationProjectionRepository.CITY_COLUMNS.keySet(), Set.of("districts"));
+
+        CityDTO city = locationProjectionRepository.findCities(selection, Set.of()).stream()
+                .filter(candidate -> cityCode.equals(candidate.getCityCode()))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(city.getCityName()).isNull();
+        assertThat(city.getDistricts()).extracting(DistrictDTO::getDistrictCode).containsExactly("d0", "d1");
+    }
+
+    @Test
+    void onlyProjectionsLeaveNullsOutOfTheJson() throws Exception {
+        List<DistrictDTO> districts = locationProjectionRepository.findDistricts(cityCode,
+                districtSelection("districtCode", null), Set.of());
+
+        // Written as the declared element type, the way the controllers return them
+        assertThat(objectMapper.writerFor(new TypeReference<List<DistrictDTO>>() { }).writeValueAsString(districts))
+                .isEqualTo("[{\"districtCode\":\"d0\"},{\"districtCode\":\"d1\"}]");
+        assertThat(objectMapper.writeValueAsString(DistrictDTO.builder().districtCode("d0").build()))
+                .contains("\"districtName\":null", "\"streets\":null")
+                .doesNotContain("streetCount");
+    }
+
+    @Test
+    void excludedCitiesAreLeftOut() {
+        FieldSelection selection = FieldSelection.parse("streetCode", null, LocationProjectionRepository.STREET_COLUMNS.keySet(), Set.of());
+        String streetCode = LocationFixtures.streetCode(cityCode, 0, 0);
+
+        assertThat(locationProjectionRepository.findStreets(null, null, selection, Set.of()))
+                .extracting(StreetDTO::getStreetCode).contains(streetCode);
+        assertThat(locationProjectionRepository.findStreets(null, null, selection, Set.of(cityCode)))
+                .extracting(StreetDTO::getStreetCode).doesNotContain(streetCode);
+    }
+
+    private FieldSelection districtSelection(String fields, String include) {
+        return FieldSelection.parse(fields, include, LocationProjectionRepository.DISTRICT_COLUMNS.keySet(), Set.of("streets", "streetCount"));
+    }
+}
@@ -0,0 +1,178 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.dto.ChangeFeedDTO;
+import com.ispark.location_service.dto.LocationChangeDTO;
+import com.ispark.location_service.entity.LocationChange.EntityType;
+import com.ispark.location_service.exception.InvalidRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ChangeFeedServiceTest {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private LocationFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new LocationFixtures(locationService);
+    }
+
+    @Test
+    void changesAreVersionedInCommitOrder() {
+        long since = changeFeedService.findLatestVersion();
+        fixtures.createCity(1, 1);
+
+        ChangeFeedDTO page = changeFeedService.findChanges(null, since, 100);
+
+        assertThat(page.getChanges()).extracting(LocationChangeDTO::getVersion).containsExactly(since + 1, since + 2, since + 3);
+        assertThat(page.getChanges()).extracting(LocationChangeDTO::getEntityType)
+                .containsExactly(EntityType.CITY, EntityType.DISTRICT, EntityType.STREET);
+        assertThat(page.getNextSince()).isEqualTo(since + 3);
+        assertThat(page.getLatestVersion()).isEqualTo(since + 3);
+        assertThat(page.isHasMore()).isFalse();
+    }
+
+    @Test
+    void pagesFollowNextSince() {
+        long since = changeFeedService.findLatestVersion();
+        fixtures.createCity(4, 0);
+
+        List<LocationChangeDTO> changes = new ArrayList<>();
+        ChangeFeedDTO page;
+        int pages = 0;
+        do {
+            page = changeFeedService.findChanges(null, since, 2);
+            changes.addAll(page.getChanges());
+            since = page.getNextSince();
+            pages++;
+        } while (page.isHasMore());
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(changes).hasSize(5);
+        assertThat(changes).extracting(LocationChangeDTO::getVersion).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void rolledBackWritesLeaveNoGap() {
+        long since = changeFeedService.findLatestVersion();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            fixtures.createCity();
+            status.setRollbackOnly();
+        });
+        fixtures.createCity();
+
+        ChangeFeedDTO page = changeFeedService.findChanges(null, since, 100);
+
+        assertThat(page.getChanges()).extracting(LocationChangeDTO::getVersion).containsExactly(since + 1);
+    }
+
+    @Test
+    void concurrentWritersGetConsecutiveVersions() throws Exception {
+        long since = changeFeedService.findLatestVersion();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> creates = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                creates.add(executor.submit(() -> fixtures.createCity(1, 0)));
+            }
+            for (Future<String> create : creates) {
+                create.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        ChangeFeedDTO page = changeFeedService.findChanges(null, since, 100);
+
+        assertThat(page.getChanges()).extracting(LocationChangeDTO::getVersion)
+                .containsExactlyElementsOf(LongStream.rangeClosed(since + 1, since + 32).boxed().toList());
+    }
+
+    @Test
+    void gapsInTheLogDoNotRequireResync() {
+        long since = changeFeedService.findLatestVersion();
+        String cityCode = fixtures.createCity(2, 0);
+        jdbcTemplate.update("delete from location_changes where version = ?", since + 2);
+
+        ChangeFeedDTO page = changeFeedService.findChanges(null, since, 100);
+
+        assertThat(page.isResyncRequired()).isFalse();
+        assertThat(page.getChanges()).extracting(LocationChangeDTO::getVersion).containsExactly(since + 1, since + 3);
+        assertThat(page.getChanges()).allMatch(change -> change.getCityCode().equals(cityCode));
+    }
+
+    @Test
+    void compactionRequiresResyncOnlyBehindItsWatermark() {
+        long since = changeFeedService.findLatestVersion();
+        String cityCode = fixtures.createCity(3, 0);
+        jdbcTemplate.update("update location_changes set changed_at = ? where city_code = ?", LocalDateTime.now().minusDays(30), cityCode);
+
+        changeFeedService.compact();
+
+        // The newest change survives compaction, everything before it is gone
+        long watermark = since + 3;
+        assertThat(changeFeedService.findChanges(null, since, 100).isResyncRequired()).isTrue();
+        assertThat(changeFeedService.findChanges(null, watermark - 1, 100).isResyncRequired()).isTrue();
+        ChangeFeedDTO page = changeFeedService.findChanges(null, watermark, 100);
+        assertThat(page.isResyncRequired()).isFalse();
+        assertThat(page.getChanges()).extracting(LocationChangeDTO::getVersion).containsExactly(since + 4);
+    }
+
+    @Test
+    void resyncPageKeepsThePosition() {
+        long since = changeFeedService.findLatestVersion();
+        String cityCode = fixtures.createCity(1, 0);
+        fixtures.createCity();
+        jdbcTemplate.update("update location_changes set changed_at = ? where city_code = ?", LocalDateTime.now().minusDays(30), cityCode);
+        changeFeedService.compact();
+
+        ChangeFeedDTO page = changeFeedService.findChanges(null, since, 100);
+
+        assertThat(page.isResyncRequired()).isTrue();
+        assertThat(page.getChanges()).isEmpty();
+        assertThat(page.getNextSince()).isEqualTo(since);
+        assertThat(page.getLatestVersion()).isEqualTo(since + 3);
+    }
+
+    @Test
+    void unshardedCursorIsAPlainVersion() {
+        long since = changeFeedService.findLatestVersion();
+        fixtures.createCity();
+
+        assertThat(changeFeedService.findChanges(String.valueOf(since), 0, 100).getChanges()).hasSize(1);
+        assertThatThrownBy(() -> changeFeedService.findChanges("shard-a:1", 0, 100))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.sharding.ShardContext;
+import com.ispark.location_service.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DistributionSummary batchSizes = meterRegistry.summary("batch.size");
+    private final Counter fallbacks = meterRegistry.counter("fallbacks");
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final List<String> singles = new CopyOnWriteArrayList<>();
+    private GroupCommitQueue<String, String> queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void requestsArrivingTogetherShareOneCommit() throws Exception {
+        queue = queue(requests -> {
+            batches.add(requests);
+            assertThat(ShardContext.current()).isEqualTo(ShardRouter.DEFAULT_SHARD);
+            return requests.stream().map(request -> BatchResult.attempt(() -> request.toUpperCase())).toList();
+        }, 3);
+
+        List<CompletableFuture<String>> results = IntStream.range(0, 5).mapToObj(i -> queue.submit("r" + i)).toList();
+
+        assertThat(results).extracting(this::await).containsExactly("R0", "R1", "R2", "R3", "R4");
+        assertThat(batches).containsExactly(List.of("r0", "r1", "r2"), List.of("r3", "r4"));
+        assertThat(batchSizes.count()).isEqualTo(2);
+        assertThat(fallbacks.count()).isZero();
+        assertThat(singles).isEmpty();
+    }
+
+    @Test
+    void rejectedRequestFailsAloneInsideTheBatch() throws Exception {
+        queue = queue(requests -> requests.stream().map(request -> BatchResult.attempt(() -> {
+            if (request.equals("bad")) {
+                throw new IllegalArgumentException("District with this code already exists in the city");
+            }
+            return request;
+        })).toList(), 10);
+
+        CompletableFuture<String> good = queue.submit("good");
+        CompletableFuture<String> bad = queue.submit("bad");
+        CompletableFuture<String> other = queue.submit("other");
+
+        assertThat(await(good)).isEqualTo("good");
+        assertThat(await(other)).isEqualTo("other");
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(fallbacks.count()).isZero();
+        assertThat(singles).isEmpty();
+    }
+
+    @Test
+    void failedBatchIsRetriedRequestByRequest() throws Exception {
+        queue = queue(requests -> {
+            throw new IllegalStateException("Deadlock found when trying to get lock");
+        }, 10);
+
+        CompletableFuture<String> good = queue.submit("good");
+        CompletableFuture<String> bad = queue.submit("bad");
+
+        assertThat(await(good)).isEqualTo("single-good");
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(singles).containsExactlyInAnyOrder("good", "bad");
+        assertThat(fallbacks.count()).isEqualTo(1);
+    }
+
+    @Test
+    void errorFailsOnlyItsBatchAndTheFlusherCarriesOn() throws Exception {
+        queue = queue(requests -> {
+            if (requests.contains("fatal")) {
+                throw new AssertionError("unexpected");
+            }
+            return requests.stream().map(request -> BatchResult.attempt(() -> request)).toList();
+        }, 1);
+
+        CompletableFuture<String> fatal = queue.submit("fatal");
+        assertThatThrownBy(() -> fatal.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AssertionError.class);
+
+        assertThat(await(queue.submit("next"))).isEqualTo("next");
+    }
+
+    private GroupCommitQueue<String, String> queue(Function<List<String>, List<BatchResult<String>>> batchCreate, int maxBatchSize) {
+        return new GroupCommitQueue<>("test", ShardRouter.DEFAULT_SHARD, batchCreate, request -> {
+            singles.add(request);
+            if (request.equals("bad")) {
+                throw new IllegalArgumentException("City not found");
+            }
+            return "single-" + request;
+        }, 200, maxBatchSize, batchSizes, fallbacks);
+    }
+
+    private String await(CompletableFuture<String> result) {
+        try {
+            return result.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
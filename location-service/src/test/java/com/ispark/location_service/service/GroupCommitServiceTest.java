@@ -0,0 +1,113 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.dto.CityStatsDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.ispark.location_service.LocationFixtures.district;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class GroupCommitServiceTest {
+
+    @Autowired
+    private GroupCommitService groupCommitService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private LocationStatsService locationStatsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private LocationFixtures fixtures;
+
+    @BeforeEach
+    void enableGroupCommit() {
+        fixtures = new LocationFixtures(locationService);
+        ReflectionTestUtils.setField(groupCommitService, "enabled", true);
+        ReflectionTestUtils.setField(groupCommitService, "maxWaitMs", 200L);
+    }
+
+    @AfterEach
+    void disableGroupCommit() {
+        ReflectionTestUtils.setField(groupCommitService, "enabled", false);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchCommitsValidRequestsAndRejectsOthersAlone() throws Exception {
+        String cityCode = fixtures.createCity();
+        double batchesBefore = batchCount();
+        List<Future<DistrictDTO>> created = new ArrayList<>();
+        for (int i = 1; i < 4; i++) {
+            created.add(submit(district(cityCode, "d" + i)));
+        }
+        List<Future<DistrictDTO>> sameCode = List.of(submit(district(cityCode, "d0")), submit(district(cityCode, "d0")));
+        Future<DistrictDTO> unknownCity = submit(district("group-missing", "d9"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(created.get(i).get(5, TimeUnit.SECONDS).getDistrictCode()).isEqualTo("d" + (i + 1));
+        }
+        List<Throwable> sameCodeErrors = new ArrayList<>();
+        for (Future<DistrictDTO> result : sameCode) {
+            try {
+                assertThat(result.get(5, TimeUnit.SECONDS).getDistrictCode()).isEqualTo("d0");
+            } catch (ExecutionException e) {
+                sameCodeErrors.add(e.getCause());
+            }
+        }
+        assertThat(sameCodeErrors).singleElement().isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> unknownCity.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class)
+                .hasRootCauseMessage("City not found");
+        assertThat(batchCount()).isLessThan(batchesBefore + 6);
+        assertThat(locationStatsService.findCityStats(cityCode).map(CityStatsDTO::getDistrictCount)).contains(4L);
+    }
+
+    @Test
+    void createDistrictsKeepsValidRequestsWhenOneIsRejected() {
+        String cityCode = fixtures.createCity();
+
+        List<BatchResult<DistrictDTO>> results = locationService.createDistricts(List.of(
+                district(cityCode, "d0"), district(cityCode, "d0"), district(cityCode, "d1")));
+
+        assertThat(results.get(0).getValue().getDistrictCode()).isEqualTo("d0");
+        assertThat(results.get(1).getError()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(results.get(2).getValue().getDistrictCode()).isEqualTo("d1");
+        assertThat(locationService.findDistrictByCode("d1", cityCode)).isPresent();
+        assertThat(locationStatsService.findCityStats(cityCode).map(CityStatsDTO::getDistrictCount)).contains(2L);
+    }
+
+    private Future<DistrictDTO> submit(DistrictDTO districtDTO) {
+        return executor.submit(() -> groupCommitService.createDistrict(districtDTO));
+    }
+
+    private double batchCount() {
+        return meterRegistry.find("location.group-commit.batch.size").tag("entity", "districts").summaries().stream()
+                .mapToDouble(summary -> summary.count()).sum();
+    }
+}
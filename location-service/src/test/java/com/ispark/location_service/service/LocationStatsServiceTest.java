@@ -0,0 +1,120 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.dto.CityStatsDTO;
+import com.ispark.location_service.dto.DistrictStatsDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LocationStatsServiceTest {
+
+    @Autowired
+    private LocationStatsService locationStatsService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LocationFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new LocationFixtures(locationService);
+    }
+
+    @Test
+    void countersFollowCreatesAndDeletes() {
+        String cityCode = createCity();
+
+        assertThat(cityStats(cityCode)).extracting(CityStatsDTO::getDistrictCount, CityStatsDTO::getStreetCount)
+                .containsExactly(2L, 3L);
+        assertThat(locationStatsService.findDistrictStats(cityCode))
+                .extracting(DistrictStatsDTO::getDistrictCode, DistrictStatsDTO::getStreetCount)
+                .containsExactlyInAnyOrder(tuple("d0", 2L), tuple("d1", 1L));
+
+        locationService.deleteStreetByCode(LocationFixtures.streetCode(cityCode, 0, 0), "d0", cityCode);
+        assertThat(cityStats(cityCode).getStreetCount()).isEqualTo(2);
+
+        locationService.deleteDistrictByCode("d0", cityCode);
+        assertThat(cityStats(cityCode)).extracting(CityStatsDTO::getDistrictCount, CityStatsDTO::getStreetCount)
+                .containsExactly(1L, 1L);
+        assertThat(locationStatsService.findDistrictStats(cityCode)).extracting(DistrictStatsDTO::getDistrictCode)
+                .containsExactly("d1");
+
+        locationService.deleteCityByCode(cityCode);
+        assertThat(locationStatsService.findCityStats(cityCode)).isEmpty();
+        assertThat(locationStatsService.findAllCityStats()).extracting(CityStatsDTO::getCityCode).doesNotContain(cityCode);
+    }
+
+    @Test
+    void reconcileRepairsDriftedMissingAndOrphanedCounters() {
+        String drifted = createCity();
+        String missing = createCity();
+        Long driftedId = cityId(drifted);
+        Long missingId = cityId(missing);
+        jdbcTemplate.update("update city_stats set district_count = 7, street_count = 0 where city_id = ?", driftedId);
+        jdbcTemplate.update("update district_stats set street_count = 9 where city_id = ?", driftedId);
+        jdbcTemplate.update("delete from district_stats where city_id = ?", missingId);
+        jdbcTemplate.update("delete from city_stats where city_id = ?", missingId);
+        jdbcTemplate.update("insert into city_stats (city_id, district_count, street_count) values (?, 1, 1)", Long.MAX_VALUE);
+
+        locationStatsService.reconcile();
+
+        for (String cityCode : new String[] {drifted, missing}) {
+            assertThat(cityStats(cityCode)).extracting(CityStatsDTO::getDistrictCount, CityStatsDTO::getStreetCount)
+                    .containsExactly(2L, 3L);
+            assertThat(locationStatsService.findDistrictStats(cityCode)).extracting(DistrictStatsDTO::getStreetCount)
+                    .containsExactlyInAnyOrder(2L, 1L);
+        }
+        assertThat(jdbcTemplate.queryForObject("select count(*) from city_stats where city_id = ?", Long.class, Long.MAX_VALUE))
+                .isZero();
+    }
+
+    @Test
+    void reconcileLeavesCorrectCountersAlone() {
+        String cityCode = createCity();
+        locationStatsService.reconcile();
+        double drift = drift();
+
+        locationStatsService.reconcile();
+
+        assertThat(drift()).isEqualTo(drift);
+        assertThat(cityStats(cityCode)).extracting(CityStatsDTO::getDistrictCount, CityStatsDTO::getStreetCount)
+                .containsExactly(2L, 3L);
+    }
+
+    private double drift() {
+        return meterRegistry.find("location.stats.drift").counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private CityStatsDTO cityStats(String cityCode) {
+        return locationStatsService.findCityStats(cityCode).orElseThrow();
+    }
+
+    private Long cityId(String cityCode) {
+        return jdbcTemplate.queryForObject("select city_id from cities where city_code = ?", Long.class, cityCode);
+    }
+
+    // Two districts, d0 with two streets and d1 with one
+    private String createCity() {
+        String cityCode = fixtures.createCity(2, 1);
+        fixtures.createStreet(cityCode, "d0", LocationFixtures.streetCode(cityCode, 0, 1));
+        return cityCode;
+    }
+}
@@ -0,0 +1,182 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.exception.ResourceNotFoundException;
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "timeoutMs", 5000L);
+        coalescer.registerMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> coalescer.execute("find", List.of("34", "d1"), () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        }));
+        awaitInFlight(1);
+
+        Future<String> second = executor.submit(() -> coalescer.execute("find", List.of("34", "d1"), () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        awaitCount("deduplicated", 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("location.coalescer.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void joinedCallersReceiveTheLoadError() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> first = executor.submit(() -> coalescer.execute("find", "34", () -> {
+            await(release);
+            throw new ResourceNotFoundException("City not found with code: 34");
+        }));
+        awaitInFlight(1);
+        Future<Object> second = executor.submit(() -> coalescer.execute("find", "34", () -> "unused"));
+        awaitCount("deduplicated", 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void keysThatOnlyMatchWhenJoinedAreNotShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> coalescer.execute("find", List.of("a|b", "c"), () -> {
+            await(release);
+            return "first";
+        }));
+        awaitInFlight(1);
+
+        String second = coalescer.execute("find", List.of("a", "b|c"), () -> "second");
+        release.countDown();
+
+        assertThat(second).isEqualTo("second");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+    }
+
+    @Test
+    void sameKeyOfAnotherOperationIsNotShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> coalescer.execute("findDistricts", "34", () -> {
+            await(release);
+            return "districts";
+        }));
+        awaitInFlight(1);
+
+        assertThat(coalescer.execute("findStreets", "34", () -> "streets")).isEqualTo("streets");
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("districts");
+    }
+
+    @Test
+    void finishedLoadsAreNotReused() {
+        AtomicInteger loads = new AtomicInteger();
+
+        coalescer.execute("find", "34", loads::incrementAndGet);
+        coalescer.execute("find", "34", loads::incrementAndGet);
+
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("location.coalescer.requests").tag("result", "load").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingCallerTimesOut() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "timeoutMs", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> coalescer.execute("find", "34", () -> {
+            await(release);
+            return "late";
+        }));
+        awaitInFlight(1);
+
+        assertThatThrownBy(() -> coalescer.execute("find", "34", () -> "unused"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("late");
+        assertThat(meterRegistry.get("location.coalescer.requests").tag("result", "timeout").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledCoalescerLoadsEveryTime() throws ExecutionException, InterruptedException {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> coalescer.execute("find", "34", () -> {
+            await(release);
+            return loads.incrementAndGet();
+        }), executor);
+
+        coalescer.execute("find", "34", loads::incrementAndGet);
+        release.countDown();
+        first.get();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("location.coalescer.inflight").gauge().value() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitCount(String result, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.find("location.coalescer.requests").tag("result", result).counter() == null
+                || meterRegistry.get("location.coalescer.requests").tag("result", result).counter().count() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.ispark.location_service.service;
+
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.CityPlacementDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.LocationChangeDTO;
+import com.ispark.location_service.entity.City;
+import com.ispark.location_service.entity.CityMove;
+import com.ispark.location_service.entity.CityNameClaim;
+import com.ispark.location_service.entity.LocationChange.ChangeType;
+import com.ispark.location_service.exception.InvalidRequestException;
+import com.ispark.location_service.exception.ResourceNotFoundException;
+import com.ispark.location_service.exception.ServiceUnavailableException;
+import com.ispark.location_service.repository.CityNameClaimRepository;
+import com.ispark.location_service.repository.CityRepository;
+import com.ispark.location_service.sharding.ShardContext;
+import com.ispark.location_service.sharding.ShardExecutor;
+import com.ispark.location_service.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.jpa.open-in-view=false",
+        "location.sharding.enabled=true",
+        "location.sharding.directory-shard=shard-a",
+        "location.sharding.shards.shard-a.url=jdbc:h2:mem:move_a;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "location.sharding.shards.shard-a.username=sa",
+        "location.sharding.shards.shard-a.driver-class-name=org.h2.Driver",
+        "location.sharding.shards.shard-b.url=jdbc:h2:mem:move_b;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "location.sharding.shards.shard-b.username=sa",
+        "location.sharding.shards.shard-b.driver-class-name=org.h2.Driver",
+        "location.sharding.shards.shard-c.url=jdbc:h2:mem:move_c;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "location.sharding.shards.shard-c.username=sa",
+        "location.sharding.shards.shard-c.driver-class-name=org.h2.Driver"
+})
+@ActiveProfiles("test")
+class ShardMigrationServiceTest {
+
+    @Autowired
+    private ShardMigrationService shardMigrationService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private LocationStatsService locationStatsService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private CityNameClaimRepository cityNameClaimRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    private LocationFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new LocationFixtures(locationService);
+    }
+
+    @Test
+    void citiesAreCreatedOnTheirRingShard() {
+        String cityCode = createCity("shard-b");
+
+        assertThat(shardRouter.shardFor(cityCode)).isEqualTo("shard-b");
+        assertThat(findOn("shard-b", cityCode)).isPresent();
+        assertThat(findOn("shard-a", cityCode)).isEmpty();
+        assertThat(findOn("shard-c", cityCode)).isEmpty();
+        assertThat(locationService.findCityByCode(cityCode)).isPresent();
+    }
+
+    @Test
+    void moveCopiesTheTreeAndPinsTheCity() {
+        String cityCode = createCity("shard-b");
+        long targetVersion = latestVersion("shard-c");
+        long sourceVersion = latestVersion("shard-b");
+
+        CityPlacementDTO placement = shardMigrationService.moveCity(cityCode, "shard-c");
+
+        assertThat(placement.getShardId()).isEqualTo("shard-c");
+        assertThat(placement.isPinned()).isTrue();
+        assertThat(findOn("shard-b", cityCode)).isEmpty();
+        assertThat(findOn("shard-c", cityCode)).get().extracting(City::getMoving).isNull();
+        assertThat(shardRouter.findMove(cityCode)).isEmpty();
+
+        CityDTO city = locationService.findCityByCode(cityCode).orElseThrow();
+        assertThat(city.getDistricts()).hasSize(2);
+        assertThat(city.getDistricts()).flatExtracting(DistrictDTO::getStreets).hasSize(3);
+        assertThat(locationStatsService.findCityStats(cityCode).orElseThrow().getStreetCount()).isEqualTo(3);
+
+        // The target announces the whole city, the source records nothing for the move
+        assertThat(changesOf("shard-c", cityCode, targetVersion)).hasSize(6)
+                .allMatch(change -> change.getChangeType() == ChangeType.UPSERT);
+        assertThat(changesOf("shard-b", cityCode, sourceVersion)).isEmpty();
+    }
+
+    @Test
+    void movedCityAcceptsWritesAndIsListedOnce() {
+        String cityCode = createCity("shard-c");
+        shardMigrationService.moveCity(cityCode, "shard-a");
+        shardMigrationService.moveCity(cityCode, "shard-b");
+
+        fixtures.createDistrict(cityCode, "d9");
+
+        assertThat(shardRouter.shardFor(cityCode)).isEqualTo("shard-b");
+        assertThat(findOn("shard-a", cityCode)).isEmpty();
+        assertThat(locationService.findDistrictByCode("d9", cityCode)).isPresent();
+        assertThat(locationService.findAllCities("cityCode", null))
+                .filteredOn(city -> city.getCityCode().equals(cityCode)).hasSize(1);
+    }
+
+    @Test
+    void invalidMovesAreRejected() {
+        String cityCode = createCity("shard-a");
+
+        assertThatThrownBy(() -> shardMigrationService.moveCity(cityCode, "shard-x"))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> shardMigrationService.moveCity(cityCode, "shard-a"))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> shardMigrationService.moveCity("missing", "shard-b"))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(shardRouter.findMove("missing")).isEmpty();
+    }
+
+    @Test
+    void pendingMoveOnlyResumesTowardItsTarget() {
+        String cityCode = createCity("shard-a");
+        startMove(cityCode, "shard-a", "shard-b");
+
+        assertThatThrownBy(() -> shardMigrationService.moveCity(cityCode, "shard-c"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        shardMigrationService.moveCity(cityCode, "shard-b");
+        assertThat(findOn("shard-b", cityCode)).isPresent();
+        assertThat(findOn("shard-a", cityCode)).isEmpty();
+    }
+
+    @Test
+    void markedCityRejectsWrites() {
+        String cityCode = createCity("shard-b");
+        setMoving("shard-b", cityCode);
+
+        assertThatThrownBy(() -> fixtures.createDistrict(cityCode, "d9"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThatThrownBy(() -> locationService.updateCityByCode(cityCode, CityDTO.builder().cityName("renamed").cityCode(cityCode).build()))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThatThrownBy(() -> locationService.deleteStreetByCode(LocationFixtures.streetCode(cityCode, 0, 0), "d0", cityCode))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(locationService.findCityByCode(cityCode)).isPresent();
+    }
+
+    @Test
+    void interruptedCopyIsReplacedOnRestart() {
+        String cityCode = createCity("shard-a");
+        startMove(cityCode, "shard-a", "shard-c");
+        setMoving("shard-a", cityCode);
+        // A crash in the middle of the copy left a partial copy behind
+        ShardContext.runOn("shard-c", () -> shardExecutor.inTransaction(() ->
+                cityRepository.save(City.builder().cityName(cityCode).cityCode(cityCode).moving(true).build())));
+
+        assertThat(locationService.findAllCities("cityCode", null))
+                .filteredOn(city -> city.getCityCode().equals(cityCode)).hasSize(1);
+
+        shardMigrationService.run(null);
+
+        assertThat(shardRouter.shardFor(cityCode)).isEqualTo("shard-c");
+        assertThat(findOn("shard-a", cityCode)).isEmpty();
+        assertThat(findOn("shard-c", cityCode)).get().extracting(City::getMoving).isNull();
+        assertThat(locationService.findCityByCode(cityCode).orElseThrow().getDistricts()).hasSize(2);
+        assertThat(shardRouter.findMove(cityCode)).isEmpty();
+    }
+
+    @Test
+    void unmarkedCityOnTheTargetIsNeverOverwritten() {
+        String cityCode = createCity("shard-b");
+        ShardContext.runOn("shard-c", () -> shardExecutor.inTransaction(() ->
+                cityRepository.save(City.builder().cityName(cityCode + " elsewhere").cityCode(cityCode).build())));
+
+        assertThatThrownBy(() -> shardMigrationService.moveCity(cityCode, "shard-c"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(findOn("shard-b", cityCode)).get().extracting(City::getMoving).isNull();
+        assertThat(findOn("shard-c", cityCode)).get().extracting(City::getCityName).isEqualTo(cityCode + " elsewhere");
+        assertThat(shardRouter.findMove(cityCode)).isEmpty();
+        assertThat(shardRouter.shardFor(cityCode)).isEqualTo("shard-b");
+    }
+
+    @Test
+    void conflictingMoveIsDroppedAndTheCityStaysWritable() {
+        String cityCode = createCity("shard-a");
+        String other = createCity("shard-b");
+        // Street codes are unique per database, the copy cannot be written to shard-b
+        fixtures.createStreet(other, "d0", LocationFixtures.streetCode(cityCode, 0, 0));
+
+        assertThatThrownBy(() -> shardMigrationService.moveCity(cityCode, "shard-b"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(shardRouter.findMove(cityCode)).isEmpty();
+        assertThat(shardRouter.shardFor(cityCode)).isEqualTo("shard-a");
+        fixtures.createDistrict(cityCode, "d9");
+    }
+
+    @Test
+    void cityNameIsHeldWhileAnotherShardClaimsIt() {
+        String cityCode = createCity("shard-a");
+        String name = cityCode + " renamed";
+        CityDTO renamed = CityDTO.builder().cityName(name).cityCode(cityCode).build();
+        String token = shardRouter.claimCityName(name);
+
+        assertThatThrownBy(() -> locationService.updateCityByCode(cityCode, renamed))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> locationService.createCity(CityDTO.builder().cityName(name).cityCode(cityCodeOn("shard-b")).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        shardRouter.releaseCityName(name, token);
+        locationService.updateCityByCode(cityCode, renamed);
+
+        assertThat(findClaim(name)).isEmpty();
+        assertThatThrownBy(() -> locationService.createCity(CityDTO.builder().cityName(name).cityCode(cityCodeOn("shard-b")).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(findClaim(name)).isEmpty();
+    }
+
+    @Test
+    void claimLeftByACrashIsTakenOverAfterTheTimeout() {
+        String name = LocationFixtures.newCityCode() + " name";
+        ShardContext.runOn(shardRouter.getDirectoryShard(), () -> shardExecutor.inTransaction(() ->
+                cityNameClaimRepository.save(CityNameClaim.builder()
+                        .cityName(name)
+                        .token("crashed")
+                        .claimedAt(LocalDateTime.now().minusHours(1))
+                        .build())));
+
+        String cityCode = cityCodeOn("shard-c");
+        locationService.createCity(CityDTO.builder().cityName(name).cityCode(cityCode).build());
+
+        assertThat(findOn("shard-c", cityCode)).get().extracting(City::getCityName).isEqualTo(name);
+        assertThat(findClaim(name)).isEmpty();
+    }
+
+    // Creates a city with two districts and three streets on the given shard of the ring
+    private String createCity(String shardId) {
+        String cityCode = cityCodeOn(shardId);
+        fixtures.createCity(cityCode, 2, 1);
+        fixtures.createStreet(cityCode, "d1", LocationFixtures.streetCode(cityCode, 1, 1));
+        return cityCode;
+    }
+
+    private String cityCodeOn(String shardId) {
+        String cityCode;
+        do {
+            cityCode = LocationFixtures.newCityCode();
+        } while (!shardRouter.shardFor(cityCode).equals(shardId));
+        return cityCode;
+    }
+
+    private Optional<CityNameClaim> findClaim(String cityName) {
+        return ShardContext.callOn(shardRouter.getDirectoryShard(), () -> shardExecutor.readOnly(() -> cityNameClaimRepository.findById(cityName)));
+    }
+
+    private void startMove(String cityCode, String sourceShard, String targetShard) {
+        shardRouter.saveMove(CityMove.builder()
+                .cityCode(cityCode)
+                .sourceShard(sourceShard)
+                .targetShard(targetShard)
+                .state(CityMove.State.COPYING)
+                .build());
+    }
+
+    private void setMoving(String shardId, String cityCode) {
+        ShardContext.runOn(shardId, () -> shardExecutor.inTransaction(() -> {
+            cityRepository.findByCityCode(cityCode).orElseThrow().setMoving(true);
+            return null;
+        }));
+    }
+
+    private Optional<City> findOn(String shardId, String cityCode) {
+        return ShardContext.callOn(shardId, () -> shardExecutor.readOnly(() -> cityRepository.findByCityCode(cityCode)));
+    }
+
+    private long latestVersion(String shardId) {
+        return ShardContext.callOn(shardId, changeFeedService::findLatestVersion);
+    }
+
+    private List<LocationChangeDTO> changesOf(String shardId, String cityCode, long since) {
+        return changeFeedService.findChanges(shardId + ":" + since, 0, 1000).getChanges().stream()
+                .filter(change -> change.getShard().equals(shardId) && change.getCityCode().equals(cityCode))
+                .toList();
+    }
+}
@@ -0,0 +1,63 @@
+package com.ispark.location_service.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    void placementOnlyDependsOnTheKeyAndTheShards() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("shard-c", "shard-a", "shard-b"), 128);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(ring.nodeFor("city-" + i)).isEqualTo(reordered.nodeFor("city-" + i));
+        }
+    }
+
+    @Test
+    void virtualNodesSpreadKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.nodeFor("city-" + i), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(3);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 4, KEYS / 2));
+    }
+
+    @Test
+    void addingAShardOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c", "shard-d"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "city-" + i;
+            if (!before.nodeFor(key).equals(after.nodeFor(key))) {
+                assertThat(after.nodeFor(key)).isEqualTo("shard-d");
+                moved++;
+            }
+        }
+
+        // Roughly a quarter of the keys, not a reshuffle of everything
+        assertThat(moved).isBetween(KEYS / 8, KEYS * 3 / 8);
+    }
+
+    @Test
+    void emptyRingHasNoNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 128);
+
+        assertThatThrownBy(() -> ring.nodeFor("city-1")).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,234 @@
+package com.ispark.location_service.snapshot;
+
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedSnapshotTest {
+
+    private static final long CREATED_AT = 1_700_000_000_000L;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void roundTripsEveryLevel() throws IOException {
+        Path path = write(cities(List.of("s1", "s2"), List.of("s3")));
+
+        MappedSnapshot snapshot = MappedSnapshot.open(path);
+        SnapshotInfoDTO info = snapshot.verify();
+
+        assertThat(info.isValid()).isTrue();
+        assertThat(info.getError()).isNull();
+        assertThat(info.getCursor()).isEqualTo("42");
+        assertThat(info.getCreatedAt().toEpochMilli()).isEqualTo(CREATED_AT);
+        assertThat(info.getCities()).isEqualTo(2);
+        assertThat(info.getDistricts()).isEqualTo(3);
+        assertThat(info.getStreets()).isEqualTo(4);
+        assertThat(info.getSizeBytes()).isEqualTo(Files.size(path));
+
+        CityDTO city = snapshot.findCity("06", true);
+        assertThat(city.getCityId()).isEqualTo(6L);
+        assertThat(city.getCityName()).isEqualTo("Ankara");
+        assertThat(city.getDistricts()).extracting(DistrictDTO::getDistrictCode).containsExactly("d1", "d2");
+        assertThat(city.getDistricts().get(0).getStreets()).extracting(StreetDTO::getStreetCode).containsExactly("s1", "s2");
+        assertThat(snapshot.findCity("06", false).getDistricts()).isNull();
+        assertThat(snapshot.findDistrictCodes("34")).containsExactly("d1");
+        assertThat(snapshot.findDistrict("34", "d1").getDistrictName()).isEqualTo("Üsküdar");
+        StreetDTO street = snapshot.findStreet("06", "d2", "s3");
+        assertThat(street.getStreetName()).isEqualTo("Şehit Street s3");
+        assertThat(street.getCityCode()).isEqualTo("06");
+        assertThat(street.getDistrictCode()).isEqualTo("d2");
+        assertThat(snapshot.findShard("34")).isEqualTo("shard-b");
+    }
+
+    @Test
+    void missingCodesAreNotFound() throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(write(cities(List.of("s1"), List.of())));
+
+        assertThat(snapshot.findCity("01", true)).isNull();
+        assertThat(snapshot.findCity("99", true)).isNull();
+        assertThat(snapshot.findDistrictCodes("99")).isEmpty();
+        assertThat(snapshot.findDistrict("06", "d9")).isNull();
+        assertThat(snapshot.findStreet("06", "d1", "s9")).isNull();
+        assertThat(snapshot.findStreet("06", "d2", "s1")).isNull();
+        assertThat(snapshot.findShard("99")).isNull();
+    }
+
+    @Test
+    void validateCommandPrintsTheInfoAsJson() throws IOException {
+        Path path = write(cities(List.of("s1"), List.of()));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        int exitCode;
+        try {
+            exitCode = SnapshotCommand.run(null, new String[] {"--snapshot-validate=" + path});
+        } finally {
+            System.setOut(out);
+        }
+
+        assertThat(exitCode).isZero();
+        assertThat(output.toString(StandardCharsets.UTF_8).trim())
+                .startsWith("{")
+                .contains("\"valid\":true", "\"cursor\":\"42\"", "\"createdAt\":\"2023-11-14T22:13:20Z\"")
+                .doesNotContain("SnapshotInfoDTO");
+    }
+
+    @Test
+    void emptySnapshotIsValid() throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(write(List.of()));
+
+        assertThat(snapshot.verify().isValid()).isTrue();
+        assertThat(snapshot.findCity("06", true)).isNull();
+    }
+
+    @Test
+    void flippedByteFailsTheChecksum() throws IOException {
+        Path path = write(cities(List.of("s1", "s2"), List.of("s3")));
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[SnapshotFormat.HEADER_SIZE + 10] ^= 1;
+        Files.write(path, bytes);
+
+        SnapshotInfoDTO info = MappedSnapshot.validate(path);
+
+        assertThat(info.isValid()).isFalse();
+        assertThat(info.getError()).isEqualTo("Checksum mismatch");
+    }
+
+    @Test
+    void truncatedFileIsRejectedOnOpen() throws IOException {
+        Path path = write(cities(List.of("s1", "s2"), List.of("s3")));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThatThrownBy(() -> MappedSnapshot.open(path))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Snapshot is truncated or has trailing data");
+        assertThat(MappedSnapshot.validate(path).isValid()).isFalse();
+    }
+
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path path = directory.resolve("foreign.bin");
+        Files.write(path, new byte[SnapshotFormat.HEADER_SIZE + SnapshotFormat.CHECKSUM_SIZE]);
+
+        SnapshotInfoDTO info = MappedSnapshot.validate(path);
+
+        assertThat(info.isValid()).isFalse();
+        assertThat(info.getError()).isEqualTo("File is not a location snapshot");
+    }
+
+    @Test
+    void unsupportedVersionIsRejected() throws IOException {
+        Path path = write(cities(List.of("s1"), List.of()));
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(SnapshotFormat.VERSION_OFFSET, SnapshotFormat.FORMAT_VERSION + 1);
+        Files.write(path, withChecksum(bytes));
+
+        assertThat(MappedSnapshot.validate(path).getError())
+                .isEqualTo("Unsupported snapshot format version " + (SnapshotFormat.FORMAT_VERSION + 1));
+    }
+
+    // A well formed file with a valid checksum can still break the binary search
+    @Test
+    void unsortedStreetsFailTheStructureCheck() throws IOException {
+        Path path = write(cities(List.of("s2", "s1"), List.of("s3")));
+
+        SnapshotInfoDTO info = MappedSnapshot.open(path).verify();
+
+        assertThat(info.isValid()).isFalse();
+        assertThat(info.getError()).isEqualTo("Streets of district 0 are not sorted at s1");
+    }
+
+    @Test
+    void streetPointingAtAnotherDistrictFailsTheStructureCheck() throws IOException {
+        Path path = write(cities(List.of("s1", "s2"), List.of("s3")));
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int streetTable = (int) buffer.getLong(SnapshotFormat.STREET_TABLE_OFFSET);
+        buffer.putInt(streetTable + 8, 1);
+        Files.write(path, withChecksum(bytes));
+
+        SnapshotInfoDTO info = MappedSnapshot.validate(path);
+
+        assertThat(info.isValid()).isFalse();
+        assertThat(info.getError()).isEqualTo("Street s1 does not belong to district 0");
+    }
+
+    @Test
+    void rewritingReplacesThePreviousSnapshot() throws IOException {
+        Path path = write(cities(List.of("s1"), List.of()));
+        SnapshotWriter.write(path, "43", CREATED_AT, cities(List.of("s1", "s2"), List.of()), shards());
+
+        MappedSnapshot snapshot = MappedSnapshot.open(path);
+
+        assertThat(snapshot.getCursor()).isEqualTo("43");
+        assertThat(snapshot.verify().getStreets()).isEqualTo(3);
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    private Path write(List<CityDTO> cities) throws IOException {
+        Path path = directory.resolve("locations.snap");
+        SnapshotWriter.write(path, "42", CREATED_AT, cities, shards());
+        return path;
+    }
+
+    private static byte[] withChecksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - SnapshotFormat.CHECKSUM_SIZE);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - SnapshotFormat.CHECKSUM_SIZE, crc.getValue());
+        return bytes;
+    }
+
+    private static Map<String, String> shards() {
+        return Map.of("06", "shard-a", "34", "shard-b");
+    }
+
+    // Ankara with districts d1 and d2, Istanbul with district d1 and one street
+    private static List<CityDTO> cities(List<String> firstStreets, List<String> secondStreets) {
+        List<CityDTO> cities = new ArrayList<>();
+        cities.add(city(6L, "06", "Ankara", List.of(
+                district(61L, "d1", "Çankaya", firstStreets),
+                district(62L, "d2", "Keçiören", secondStreets))));
+        cities.add(city(34L, "34", "İstanbul", List.of(district(341L, "d1", "Üsküdar", List.of("s1")))));
+        return cities;
+    }
+
+    private static CityDTO city(long cityId, String cityCode, String cityName, List<DistrictDTO> districts) {
+        return CityDTO.builder().cityId(cityId).cityCode(cityCode).cityName(cityName).districts(districts).build();
+    }
+
+    private static DistrictDTO district(long districtId, String districtCode, String districtName, List<String> streetCodes) {
+        List<StreetDTO> streets = new ArrayList<>();
+        for (String streetCode : streetCodes) {
+            streets.add(StreetDTO.builder()
+                    .streetId(districtId * 100 + streets.size())
+                    .streetCode(streetCode)
+                    .streetName("Şehit Street " + streetCode)
+                    .build());
+        }
+        return DistrictDTO.builder().districtId(districtId).districtCode(districtCode).districtName(districtName).streets(streets).build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.ispark.location_service.snapshot;
+
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.dto.CityDTO;
+import com.ispark.location_service.dto.DistrictDTO;
+import com.ispark.location_service.dto.LocationChangeDTO;
+import com.ispark.location_service.dto.SnapshotInfoDTO;
+import com.ispark.location_service.dto.StreetDTO;
+import com.ispark.location_service.entity.LocationChange.ChangeType;
+import com.ispark.location_service.entity.LocationChange.EntityType;
+import com.ispark.location_service.service.ChangeFeedService;
+import com.ispark.location_service.service.LocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SnapshotServiceTest {
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private SnapshotReadModel snapshotReadModel;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @TempDir
+    private Path directory;
+
+    private LocationFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new LocationFixtures(locationService);
+    }
+
+    @Test
+    void exportMatchesTheDatabase() throws Exception {
+        String cityCode = createCity();
+        Path path = directory.resolve("locations.snap");
+
+        SnapshotInfoDTO exported = snapshotService.export(path);
+        SnapshotInfoDTO validated = snapshotService.validate(path);
+
+        assertThat(validated.isValid()).isTrue();
+        assertThat(validated.getChecksum()).isEqualTo(exported.getChecksum());
+        assertThat(exported.getCursor()).isEqualTo(String.valueOf(changeFeedService.findLatestVersion()));
+        CityDTO city = MappedSnapshot.open(path).findCity(cityCode, true);
+        CityDTO expected = locationService.findCityByCode(cityCode).orElseThrow();
+        assertThat(city.getCityId()).isEqualTo(expected.getCityId());
+        assertThat(city.getDistricts()).extracting(DistrictDTO::getDistrictCode).containsExactly("d0", "d1");
+        assertThat(city.getDistricts().get(0).getStreets()).extracting(StreetDTO::getStreetCode)
+                .containsExactly(cityCode + "-a", cityCode + "-b");
+    }
+
+    @Test
+    void readModelCatchesUpWithChangesAfterTheExport() throws Exception {
+        String cityCode = createCity();
+        Path path = directory.resolve("locations.snap");
+        snapshotService.export(path);
+        snapshotReadModel.load(path);
+
+        fixtures.createStreet(cityCode, "d1", cityCode + "-c");
+        locationService.deleteDistrictByCode("d0", cityCode);
+        snapshotReadModel.catchUp();
+
+        assertThat(snapshotReadModel.getStatus().getCursor()).isEqualTo(String.valueOf(changeFeedService.findLatestVersion()));
+        assertThat(snapshotReadModel.findDistrict(cityCode, "d0")).isEmpty();
+        assertThat(snapshotReadModel.findStreet(cityCode, "d0", cityCode + "-a")).isEmpty();
+        assertThat(snapshotReadModel.findStreet(cityCode, "d1", cityCode + "-c")).isPresent();
+        assertThat(snapshotReadModel.findCity(cityCode).orElseThrow().getDistricts())
+                .extracting(DistrictDTO::getDistrictCode).containsExactly("d1");
+    }
+
+    @Test
+    void olderChangesDoNotOverwriteNewerOnes() throws Exception {
+        String cityCode = createCity();
+        Path path = directory.resolve("locations.snap");
+        snapshotService.export(path);
+        snapshotReadModel.load(path);
+        String streetCode = cityCode + "-c";
+        StreetDTO created = fixtures.createStreet(cityCode, "d1", streetCode);
+        long version = changeFeedService.findLatestVersion();
+
+        snapshotReadModel.onChange(streetChange(cityCode, streetCode, ChangeType.UPSERT, version - 1, "Stale"));
+        snapshotReadModel.onChange(streetChange(cityCode, streetCode, ChangeType.DELETE, version, "Repeated"));
+
+        assertThat(snapshotReadModel.findStreet(cityCode, "d1", streetCode)).get()
+                .extracting(StreetDTO::getStreetName).isEqualTo(created.getStreetName());
+
+        snapshotReadModel.onChange(streetChange(cityCode, streetCode, ChangeType.DELETE, version + 1, created.getStreetName()));
+        assertThat(snapshotReadModel.findStreet(cityCode, "d1", streetCode)).isEmpty();
+    }
+
+    private LocationChangeDTO streetChange(String cityCode, String streetCode, ChangeType changeType, long version, String name) {
+        return LocationChangeDTO.builder()
+                .version(version)
+                .entityType(EntityType.STREET)
+                .changeType(changeType)
+                .cityCode(cityCode)
+                .districtCode("d1")
+                .streetCode(streetCode)
+                .name(name)
+                .build();
+    }
+
+    // Streets are inserted out of order, the export sorts them for the binary search
+    private String createCity() {
+        String cityCode = LocationFixtures.newCityCode();
+        fixtures.createCity(cityCode, 0, 0);
+        fixtures.createDistrict(cityCode, "d1");
+        fixtures.createDistrict(cityCode, "d0");
+        fixtures.createStreet(cityCode, "d0", cityCode + "-b");
+        fixtures.createStreet(cityCode, "d0", cityCode + "-a");
+        return cityCode;
+    }
+}
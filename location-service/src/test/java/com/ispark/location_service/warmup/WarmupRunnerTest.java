@@ -0,0 +1,105 @@
+package com.ispark.location_service.warmup;
+
+import com.ispark.location_service.LocationFixtures;
+import com.ispark.location_service.service.LocationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class WarmupRunnerTest {
+
+    @Autowired
+    private WarmupRunner warmupRunner;
+
+    @Autowired
+    private WarmupProperties warmupProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @SpyBean
+    private LocationService locationService;
+
+    private LocationFixtures fixtures;
+
+    @BeforeEach
+    void enableWarmup() {
+        fixtures = new LocationFixtures(locationService);
+        warmupProperties.setEnabled(true);
+        warmupProperties.setIterations(2);
+        warmupProperties.setSampleCities(3);
+    }
+
+    @AfterEach
+    void disableWarmup() {
+        warmupProperties.setEnabled(false);
+    }
+
+    @Test
+    void replaysSampledLookupsWithoutLoadingTheHierarchy() {
+        for (int i = 0; i < 4; i++) {
+            fixtures.createCity(1, 1);
+        }
+        double requestsBefore = count("location.warmup.requests");
+        double failuresBefore = count("location.warmup.failures");
+
+        warmupRunner.run(null);
+
+        verify(locationService).findSampleCityCodes(3);
+        verify(locationService, atLeastOnce()).findAllCities(eq("cityCode,cityName"), any());
+        verify(locationService, never()).findAllCities();
+        verify(locationService, never()).findAllDistricts(any(), any());
+        verify(locationService, never()).findAllStreets(any());
+        assertThat(count("location.warmup.requests")).isGreaterThan(requestsBefore);
+        assertThat(count("location.warmup.failures")).isEqualTo(failuresBefore);
+        assertThat(meterRegistry.get("location.warmup.coverage").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void cityThatFailsToLoadIsSkipped() {
+        String broken = fixtures.createCity(1, 1);
+        String healthy = fixtures.createCity(1, 1);
+        doReturn(List.of(broken, healthy)).when(locationService).findSampleCityCodes(3);
+        doThrow(new IllegalStateException("broken")).when(locationService).findDistrictsByCityCode(eq(broken), any(), any());
+        double failuresBefore = count("location.warmup.failures");
+
+        warmupRunner.run(null);
+
+        verify(locationService, atLeastOnce()).findDistrictByCode("d0", healthy);
+        verify(locationService, never()).findDistrictByCode("d0", broken);
+        verify(locationService, never()).findCityByCode(any());
+        assertThat(count("location.warmup.failures")).isEqualTo(failuresBefore + 1);
+        assertThat(meterRegistry.get("location.warmup.coverage").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void sampleIsLimitedAndEmptyForZero() {
+        fixtures.createCity();
+        fixtures.createCity();
+
+        assertThat(locationService.findSampleCityCodes(1)).hasSize(1);
+        assertThat(locationService.findSampleCityCodes(0)).isEmpty();
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).functionCounter().count();
+    }
+}